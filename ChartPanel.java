@@ -246,7 +246,9 @@ import org.jfree.chart.event.ChartProgressListener;
 import org.jfree.chart.panel.Overlay;
 import org.jfree.chart.event.OverlayChangeEvent;
 import org.jfree.chart.event.OverlayChangeListener;
+import org.jfree.chart.event.PlotChangeEvent;
 import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.IncrementalPlot;
 import org.jfree.chart.plot.Pannable;
 import org.jfree.chart.plot.Plot;
 import org.jfree.chart.plot.PlotOrientation;
@@ -1713,15 +1715,66 @@ public class ChartPanel extends JPanel implements ChartChangeListener,
      */
     @Override
     public void chartChanged(ChartChangeEvent event) {
-        this.refreshBuffer = true;
         Plot plot = this.chart.getPlot();
         if (plot instanceof Zoomable) {
             Zoomable z = (Zoomable) plot;
             this.orientation = z.getOrientation();
         }
+        if (plot instanceof IncrementalPlot
+                && event instanceof PlotChangeEvent
+                && updateBuffer((IncrementalPlot) plot,
+                        (PlotChangeEvent) event)) {
+            return;
+        }
+        this.refreshBuffer = true;
         repaint();
     }
 
+    /**
+     * Lets an {@link IncrementalPlot} draw just the change described by a
+     * plot change event into the off-screen buffer, and repaints the part of
+     * the panel that changed.  This is only attempted on the event dispatch
+     * thread, when the buffer is up to date.
+     *
+     * @param plot  the plot (<code>null</code> not permitted).
+     * @param event  the plot change event (<code>null</code> not permitted).
+     *
+     * @return <code>true</code> if the buffer was updated, and
+     *     <code>false</code> if the chart needs to be redrawn in full.
+     */
+    private boolean updateBuffer(IncrementalPlot plot, PlotChangeEvent event) {
+        if (!this.useBuffer || this.chartBuffer == null || this.refreshBuffer
+                || !SwingUtilities.isEventDispatchThread()) {
+            return false;
+        }
+        Rectangle2D dirty;
+        Graphics2D bufferG2 = (Graphics2D) this.chartBuffer.getGraphics();
+        try {
+            bufferG2.addRenderingHints(this.chart.getRenderingHints());
+            if (this.scaleX != 1.0 || this.scaleY != 1.0) {
+                bufferG2.transform(AffineTransform.getScaleInstance(
+                        this.scaleX, this.scaleY));
+            }
+            dirty = plot.drawIncrementalChanges(bufferG2,
+                    this.info.getPlotInfo(), event);
+        }
+        finally {
+            bufferG2.dispose();
+        }
+        if (dirty == null) {
+            return false;
+        }
+        if (!dirty.isEmpty()) {
+            Insets insets = getInsets();
+            int x = (int) Math.floor(dirty.getMinX() * this.scaleX);
+            int y = (int) Math.floor(dirty.getMinY() * this.scaleY);
+            int w = (int) Math.ceil(dirty.getMaxX() * this.scaleX) - x;
+            int h = (int) Math.ceil(dirty.getMaxY() * this.scaleY) - y;
+            repaint(insets.left + x, insets.top + y, w, h);
+        }
+        return true;
+    }
+
     /**
      * Receives notification of a chart progress event.
      *
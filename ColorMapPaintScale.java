@@ -0,0 +1,281 @@
+package org.jfree.chart.renderer;
+
+import java.awt.Color;
+import java.awt.Paint;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.jfree.io.SerialUtilities;
+import org.jfree.util.PaintUtilities;
+import org.jfree.util.PublicCloneable;
+
+/**
+ * A continuous {@link PaintScale} backed by a table of ARGB colours spread
+ * evenly between the lower and upper bound.  Unlike a
+ * {@link LookupPaintScale} there is no search: a value is mapped to its
+ * colour with one multiply and one array index.  Instances are immutable,
+ * so one scale can be shared by all renderers using the same bounds.
+ */
+public class ColorMapPaintScale implements PaintScale, PublicCloneable,
+        Serializable {
+
+    /** For serialization. */
+    private static final long serialVersionUID = -1764393407917315513L;
+
+    /** The lower bound. */
+    private double lowerBound;
+
+    /** The upper bound. */
+    private double upperBound;
+
+    /** The colour table, evenly spread over the bounds. */
+    private int[] argb;
+
+    /** The paint returned for values outside the bounds. */
+    private transient Paint defaultPaint;
+
+    /** The colour table as Color instances, built from argb. */
+    private transient Color[] colors;
+
+    /** The number of table entries per unit of value. */
+    private transient double scale;
+
+    /**
+     * Creates a new paint scale.
+     *
+     * @param lowerBound  the lower bound.
+     * @param upperBound  the upper bound (must be greater than the lower
+     *     bound).
+     * @param argb  the colours in ascending value order (<code>null</code>
+     *     not permitted, at least one entry).
+     * @param defaultPaint  the paint for values outside the bounds
+     *     (<code>null</code> not permitted).
+     */
+    public ColorMapPaintScale(double lowerBound, double upperBound,
+            int[] argb, Paint defaultPaint) {
+        if (!(lowerBound < upperBound)) {
+            throw new IllegalArgumentException(
+                    "Requires lowerBound < upperBound.");
+        }
+        if (argb == null || argb.length == 0) {
+            throw new IllegalArgumentException("Null or empty 'argb' argument.");
+        }
+        if (defaultPaint == null) {
+            throw new IllegalArgumentException("Null 'defaultPaint' argument.");
+        }
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.argb = argb.clone();
+        this.defaultPaint = defaultPaint;
+        init();
+    }
+
+    /**
+     * Builds the derived lookup state.
+     */
+    private void init() {
+        this.colors = new Color[this.argb.length];
+        for (int i = 0; i < this.argb.length; i++) {
+            this.colors[i] = new Color(this.argb[i], true);
+        }
+        this.scale = this.argb.length / (this.upperBound - this.lowerBound);
+    }
+
+    /**
+     * Creates a scale running through the hues from blue to red, as used by
+     * the {@link WaferMapRenderer#BLUE_ORANGE_INDEX} method.  Values outside
+     * the bounds are shown in red.
+     *
+     * @param lowerBound  the lower bound.
+     * @param upperBound  the upper bound.
+     * @param resolution  the number of colours in the table.
+     *
+     * @return The paint scale.
+     */
+    public static ColorMapPaintScale createBlueRed(double lowerBound,
+            double upperBound, int resolution) {
+        if (resolution < 1) {
+            throw new IllegalArgumentException(
+                    "The 'resolution' must be at least 1.");
+        }
+        float[] blue = Color.RGBtoHSB(0, 0, 255, null);
+        float[] red = Color.RGBtoHSB(255, 0, 0, null);
+        int[] table = new int[resolution];
+        for (int i = 0; i < resolution; i++) {
+            float hue = blue[0] + (red[0] - blue[0]) * (i + 1)
+                    / (float) resolution;
+            table[i] = Color.HSBtoRGB(hue, 1.0f, 1.0f);
+        }
+        return new ColorMapPaintScale(lowerBound, upperBound, table,
+                Color.RED);
+    }
+
+    /**
+     * Returns the lower bound.
+     *
+     * @return The lower bound.
+     */
+    @Override
+    public double getLowerBound() {
+        return this.lowerBound;
+    }
+
+    /**
+     * Returns the upper bound.
+     *
+     * @return The upper bound.
+     */
+    @Override
+    public double getUpperBound() {
+        return this.upperBound;
+    }
+
+    /**
+     * Returns the number of colours in the table.
+     *
+     * @return The resolution.
+     */
+    public int getResolution() {
+        return this.argb.length;
+    }
+
+    /**
+     * Returns the paint for values outside the bounds.
+     *
+     * @return The default paint (never <code>null</code>).
+     */
+    public Paint getDefaultPaint() {
+        return this.defaultPaint;
+    }
+
+    /**
+     * Returns the table index for a value, or -1 if the value lies outside
+     * the bounds.
+     *
+     * @param value  the value.
+     *
+     * @return The index.
+     */
+    private int getIndex(double value) {
+        if (!(value >= this.lowerBound && value <= this.upperBound)) {
+            return -1;
+        }
+        int i = (int) ((value - this.lowerBound) * this.scale);
+        return (i < this.argb.length) ? i : this.argb.length - 1;
+    }
+
+    /**
+     * Returns the paint for a value.
+     *
+     * @param value  the value.
+     *
+     * @return The paint (never <code>null</code>).
+     */
+    @Override
+    public Paint getPaint(double value) {
+        int i = getIndex(value);
+        return (i < 0) ? this.defaultPaint : this.colors[i];
+    }
+
+    /**
+     * Returns the colour for a value as a packed ARGB int, for callers that
+     * write pixels directly.
+     *
+     * @param value  the value.
+     * @param outside  the colour to return for values outside the bounds.
+     *
+     * @return The ARGB colour.
+     */
+    public int getARGB(double value, int outside) {
+        int i = getIndex(value);
+        return (i < 0) ? outside : this.argb[i];
+    }
+
+    /**
+     * Tests this scale for equality with an arbitrary object.
+     *
+     * @param obj  the object (<code>null</code> permitted).
+     *
+     * @return A boolean.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof ColorMapPaintScale)) {
+            return false;
+        }
+        ColorMapPaintScale that = (ColorMapPaintScale) obj;
+        if (this.lowerBound != that.lowerBound) {
+            return false;
+        }
+        if (this.upperBound != that.upperBound) {
+            return false;
+        }
+        if (!Arrays.equals(this.argb, that.argb)) {
+            return false;
+        }
+        return PaintUtilities.equal(this.defaultPaint, that.defaultPaint);
+    }
+
+    /**
+     * Returns a hash code for this instance.
+     *
+     * @return A hash code.
+     */
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        long bits = Double.doubleToLongBits(this.lowerBound);
+        hash = 37 * hash + (int) (bits ^ (bits >>> 32));
+        bits = Double.doubleToLongBits(this.upperBound);
+        hash = 37 * hash + (int) (bits ^ (bits >>> 32));
+        hash = 37 * hash + Arrays.hashCode(this.argb);
+        return hash;
+    }
+
+    /**
+     * Returns this instance, since the scale is immutable.
+     *
+     * @return This instance.
+     *
+     * @throws CloneNotSupportedException never.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        return this;
+    }
+
+    /**
+     * Provides serialization support.
+     *
+     * @param stream  the output stream.
+     *
+     * @throws IOException  if there is an I/O error.
+     */
+    private void writeObject(ObjectOutputStream stream)
+            throws IOException {
+        stream.defaultWriteObject();
+        SerialUtilities.writePaint(this.defaultPaint, stream);
+    }
+
+    /**
+     * Provides serialization support.
+     *
+     * @param stream  the input stream.
+     *
+     * @throws IOException  if there is an I/O error.
+     * @throws ClassNotFoundException  if there is a classpath problem.
+     */
+    private void readObject(ObjectInputStream stream)
+            throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        this.defaultPaint = SerialUtilities.readPaint(stream);
+        init();
+    }
+
+}
@@ -0,0 +1,259 @@
+package org.jfree.chart.renderer;
+
+import java.awt.Color;
+import java.awt.Paint;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jfree.chart.ChartColor;
+
+/**
+ * A process-wide registry of immutable colour maps shared by wafer map
+ * renderers.  It holds the categorical palette used by the
+ * {@link WaferMapRenderer#CONSISTENT_INDEX} method and builds
+ * {@link ColorMapPaintScale} tables for the continuous schemes of the
+ * {@link WaferMapRenderer#BLUE_ORANGE_INDEX} method.  Tables are cached by
+ * (scheme, lower bound, upper bound, resolution) with least-recently-used
+ * eviction, so renderers showing the same range share one table instead of
+ * building their own.
+ * <p>
+ * The position and value index methods have no entry here: they take their
+ * colours from the series paints of the plot's drawing supplier, and the
+ * index that maps values onto those paints depends on the values of each
+ * wafer, so there is nothing common to share.
+ */
+public final class ColorMapRegistry {
+
+    /** The blue to red hue ramp of the blue-orange paint index method. */
+    public static final String BLUE_RED = "blue-red";
+
+    /** The perceptually uniform viridis map. */
+    public static final String VIRIDIS = "viridis";
+
+    /** A black to white ramp. */
+    public static final String GRAY = "gray";
+
+    /** The default number of cached paint scales. */
+    public static final int DEFAULT_CACHE_CAPACITY = 256;
+
+    /** The viridis control points, evenly spaced from 0 to 1. */
+    private static final int[] VIRIDIS_POINTS = {
+        0x440154, 0x482475, 0x414487, 0x355f8d, 0x2a788e, 0x21918c,
+        0x22a884, 0x44bf70, 0x7ad151, 0xbddf26, 0xfde725
+    };
+
+    /** The categorical palette for consistent bin colours. */
+    private static final List<Paint> DEFAULT_COLORS
+            = Collections.unmodifiableList(Arrays.asList(new Paint[] {
+        Color.GREEN, new Color(255, 85, 85), new Color(85, 85, 255),
+        new Color(85, 80, 85), new Color(255, 255, 85),
+        new Color(255, 85, 255), new Color(85, 255, 255), Color.pink,
+        Color.gray, ChartColor.DARK_RED, ChartColor.DARK_BLUE,
+        ChartColor.DARK_YELLOW, ChartColor.DARK_MAGENTA,
+        ChartColor.DARK_CYAN, Color.darkGray, ChartColor.LIGHT_RED,
+        ChartColor.LIGHT_BLUE, ChartColor.LIGHT_GREEN,
+        ChartColor.LIGHT_YELLOW, ChartColor.LIGHT_MAGENTA,
+        ChartColor.LIGHT_CYAN, Color.lightGray, ChartColor.VERY_DARK_RED,
+        ChartColor.VERY_DARK_BLUE, ChartColor.VERY_DARK_YELLOW,
+        ChartColor.VERY_DARK_MAGENTA, ChartColor.VERY_DARK_CYAN,
+        ChartColor.VERY_LIGHT_RED, ChartColor.VERY_LIGHT_BLUE,
+        ChartColor.VERY_LIGHT_YELLOW, ChartColor.VERY_LIGHT_MAGENTA,
+        ChartColor.VERY_LIGHT_CYAN, Color.BLACK }));
+
+    /** The cached paint scales, in access order. */
+    private static final LinkedHashMap<Key, ColorMapPaintScale> CACHE
+            = new LinkedHashMap<Key, ColorMapPaintScale>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<Key, ColorMapPaintScale> eldest) {
+            return size() > cacheCapacity;
+        }
+    };
+
+    /** The maximum number of cached paint scales. */
+    private static int cacheCapacity = DEFAULT_CACHE_CAPACITY;
+
+    private ColorMapRegistry() {
+        // no instances
+    }
+
+    /**
+     * Returns the shared categorical palette used for consistent bin
+     * colours.
+     *
+     * @return An unmodifiable list of paints.
+     */
+    public static List<Paint> getDefaultColors() {
+        return DEFAULT_COLORS;
+    }
+
+    /**
+     * Returns <code>true</code> if the registry knows the named continuous
+     * scheme.
+     *
+     * @param scheme  the scheme name (<code>null</code> permitted).
+     *
+     * @return A boolean.
+     */
+    public static boolean isScheme(String scheme) {
+        return BLUE_RED.equals(scheme) || VIRIDIS.equals(scheme)
+                || GRAY.equals(scheme);
+    }
+
+    /**
+     * Returns a paint scale for a continuous scheme, creating and caching it
+     * if necessary.
+     *
+     * @param scheme  the scheme name, one of {@link #BLUE_RED},
+     *     {@link #VIRIDIS} or {@link #GRAY}.
+     * @param lowerBound  the lower bound.
+     * @param upperBound  the upper bound (greater than the lower bound).
+     * @param resolution  the number of colours in the table (at least 1).
+     *
+     * @return A shared, immutable paint scale.
+     */
+    public static ColorMapPaintScale getPaintScale(String scheme,
+            double lowerBound, double upperBound, int resolution) {
+        if (!isScheme(scheme)) {
+            throw new IllegalArgumentException("Unknown scheme: " + scheme);
+        }
+        Key key = new Key(scheme, lowerBound, upperBound, resolution);
+        synchronized (CACHE) {
+            ColorMapPaintScale result = CACHE.get(key);
+            if (result == null) {
+                result = createPaintScale(scheme, lowerBound, upperBound,
+                        resolution);
+                CACHE.put(key, result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Returns the maximum number of cached paint scales.
+     *
+     * @return The capacity.
+     */
+    public static int getCacheCapacity() {
+        synchronized (CACHE) {
+            return cacheCapacity;
+        }
+    }
+
+    /**
+     * Sets the maximum number of cached paint scales, evicting the least
+     * recently used ones if the cache is larger.
+     *
+     * @param capacity  the capacity (at least 1).
+     */
+    public static void setCacheCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(
+                    "The 'capacity' must be at least 1.");
+        }
+        synchronized (CACHE) {
+            cacheCapacity = capacity;
+            while (CACHE.size() > capacity) {
+                CACHE.remove(CACHE.keySet().iterator().next());
+            }
+        }
+    }
+
+    /**
+     * Removes all cached paint scales.
+     */
+    public static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    /**
+     * Builds the colour table for a scheme.
+     */
+    private static ColorMapPaintScale createPaintScale(String scheme,
+            double lowerBound, double upperBound, int resolution) {
+        if (BLUE_RED.equals(scheme)) {
+            return ColorMapPaintScale.createBlueRed(lowerBound, upperBound,
+                    resolution);
+        }
+        if (resolution < 1) {
+            throw new IllegalArgumentException(
+                    "The 'resolution' must be at least 1.");
+        }
+        int[] points = VIRIDIS.equals(scheme) ? VIRIDIS_POINTS
+                : new int[] {0x000000, 0xffffff};
+        int[] table = new int[resolution];
+        for (int i = 0; i < resolution; i++) {
+            double f = (resolution == 1) ? 0.0
+                    : i * (points.length - 1) / (double) (resolution - 1);
+            int p = Math.min((int) f, points.length - 2);
+            table[i] = interpolate(points[p], points[p + 1], f - p);
+        }
+        return new ColorMapPaintScale(lowerBound, upperBound, table,
+                Color.BLACK);
+    }
+
+    /**
+     * Interpolates linearly between two RGB colours, returning an opaque
+     * ARGB colour.
+     */
+    private static int interpolate(int rgb0, int rgb1, double f) {
+        int result = 0xff000000;
+        for (int shift = 0; shift <= 16; shift += 8) {
+            int c0 = (rgb0 >> shift) & 0xff;
+            int c1 = (rgb1 >> shift) & 0xff;
+            result |= ((int) Math.round(c0 + (c1 - c0) * f)) << shift;
+        }
+        return result;
+    }
+
+    /**
+     * The cache key.
+     */
+    private static final class Key {
+
+        private final String scheme;
+
+        private final double lowerBound;
+
+        private final double upperBound;
+
+        private final int resolution;
+
+        Key(String scheme, double lowerBound, double upperBound,
+                int resolution) {
+            this.scheme = scheme;
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            this.resolution = resolution;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return this.scheme.equals(that.scheme)
+                    && Double.doubleToLongBits(this.lowerBound)
+                    == Double.doubleToLongBits(that.lowerBound)
+                    && Double.doubleToLongBits(this.upperBound)
+                    == Double.doubleToLongBits(that.upperBound)
+                    && this.resolution == that.resolution;
+        }
+
+        @Override
+        public int hashCode() {
+            long bits = Double.doubleToLongBits(this.lowerBound) * 31
+                    + Double.doubleToLongBits(this.upperBound);
+            return this.scheme.hashCode() * 31 + (int) (bits ^ (bits >>> 32))
+                    + this.resolution;
+        }
+
+    }
+
+}
@@ -0,0 +1,366 @@
+package org.jfree.data.statistics;
+
+import java.io.Serializable;
+
+import org.jfree.chart.util.ParamChecks;
+import org.jfree.data.general.DatasetChangeEvent;
+import org.jfree.data.general.DatasetChangeListener;
+import org.jfree.data.xy.AbstractIntervalXYDataset;
+import org.jfree.data.xy.IntervalXYDataset;
+import org.jfree.util.ObjectUtilities;
+import org.jfree.util.PublicCloneable;
+
+/**
+ * A view of a {@link HistogramDataset} as cumulative counts or cumulative
+ * relative frequencies, for drawing an empirical distribution function over
+ * the histogram without sorting the data.  Each item is a bin of the
+ * underlying dataset; its x-value is the end of the bin, where the running
+ * total applies, and its y-value the running total up to that point.  The
+ * running totals are cached by the underlying dataset (see
+ * {@link HistogramDataset#getCumulativeCount(int, int)}), and changes to it
+ * are passed on to the listeners of this view.
+ */
+public class CumulativeHistogramDataset extends AbstractIntervalXYDataset
+        implements IntervalXYDataset, DatasetChangeListener, Cloneable,
+                   PublicCloneable, Serializable {
+
+    /** For serialization. */
+    private static final long serialVersionUID = 2173385736475906612L;
+
+    /** The underlying dataset. */
+    private HistogramDataset underlying;
+
+    /** A flag that selects relative frequencies rather than counts. */
+    private boolean relative;
+
+    /**
+     * Creates a view of the cumulative relative frequencies of a dataset.
+     *
+     * @param underlying  the underlying dataset (<code>null</code> not
+     *     permitted).
+     */
+    public CumulativeHistogramDataset(HistogramDataset underlying) {
+        this(underlying, true);
+    }
+
+    /**
+     * Creates a new view.
+     *
+     * @param underlying  the underlying dataset (<code>null</code> not
+     *     permitted).
+     * @param relative  <code>true</code> for cumulative relative frequencies,
+     *     <code>false</code> for cumulative counts.
+     */
+    public CumulativeHistogramDataset(HistogramDataset underlying,
+            boolean relative) {
+        ParamChecks.nullNotPermitted(underlying, "underlying");
+        this.underlying = underlying;
+        this.underlying.addChangeListener(this);
+        this.relative = relative;
+    }
+
+    /**
+     * Returns the underlying dataset.
+     *
+     * @return The underlying dataset (never <code>null</code>).
+     */
+    public HistogramDataset getUnderlyingDataset() {
+        return this.underlying;
+    }
+
+    /**
+     * Returns <code>true</code> if the view shows cumulative relative
+     * frequencies, and <code>false</code> if it shows cumulative counts.
+     *
+     * @return A boolean.
+     */
+    public boolean isRelative() {
+        return this.relative;
+    }
+
+    /**
+     * Sets the flag that selects cumulative relative frequencies rather than
+     * cumulative counts, and sends a {@link DatasetChangeEvent} to all
+     * registered listeners.
+     *
+     * @param relative  the new flag value.
+     */
+    public void setRelative(boolean relative) {
+        this.relative = relative;
+        fireDatasetChanged();
+    }
+
+    /**
+     * Returns the number of series in the dataset.
+     *
+     * @return The series count.
+     */
+    @Override
+    public int getSeriesCount() {
+        return this.underlying.getSeriesCount();
+    }
+
+    /**
+     * Returns the key for a series.
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     *
+     * @return The series key.
+     */
+    @Override
+    public Comparable getSeriesKey(int series) {
+        return this.underlying.getSeriesKey(series);
+    }
+
+    /**
+     * Returns the number of data items for a series.
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     *
+     * @return The item count.
+     */
+    @Override
+    public int getItemCount(int series) {
+        return this.underlying.getItemCount(series);
+    }
+
+    /**
+     * Returns the x-value for an item, the end of the bin.
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The x-value.
+     */
+    @Override
+    public Number getX(int series, int item) {
+        return Double.valueOf(getXValue(series, item));
+    }
+
+    /**
+     * Returns the x-value for an item as a double primitive, the end of the
+     * bin.
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The x-value.
+     */
+    @Override
+    public double getXValue(int series, int item) {
+        return this.underlying.getEndXValue(series, item);
+    }
+
+    /**
+     * Returns the y-value for an item, the cumulative count or relative
+     * frequency at the end of the bin.
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The y-value.
+     */
+    @Override
+    public Number getY(int series, int item) {
+        return Double.valueOf(getYValue(series, item));
+    }
+
+    /**
+     * Returns the y-value for an item as a double primitive.
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The y-value.
+     */
+    @Override
+    public double getYValue(int series, int item) {
+        if (this.relative) {
+            return this.underlying.getCumulativeFrequency(series, item);
+        }
+        return this.underlying.getCumulativeCount(series, item);
+    }
+
+    /**
+     * Returns the start of the bin for an item.
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The start value.
+     */
+    @Override
+    public Number getStartX(int series, int item) {
+        return Double.valueOf(getStartXValue(series, item));
+    }
+
+    /**
+     * Returns the start of the bin for an item as a double primitive.
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The start value.
+     */
+    @Override
+    public double getStartXValue(int series, int item) {
+        return this.underlying.getStartXValue(series, item);
+    }
+
+    /**
+     * Returns the end of the bin for an item.
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The end value.
+     */
+    @Override
+    public Number getEndX(int series, int item) {
+        return Double.valueOf(getEndXValue(series, item));
+    }
+
+    /**
+     * Returns the end of the bin for an item as a double primitive.
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The end value.
+     */
+    @Override
+    public double getEndXValue(int series, int item) {
+        return this.underlying.getEndXValue(series, item);
+    }
+
+    /**
+     * Returns the start y-value for an item (the same as the y-value).
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The y-value.
+     */
+    @Override
+    public Number getStartY(int series, int item) {
+        return getY(series, item);
+    }
+
+    /**
+     * Returns the start y-value for an item as a double primitive (the same
+     * as the y-value).
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The y-value.
+     */
+    @Override
+    public double getStartYValue(int series, int item) {
+        return getYValue(series, item);
+    }
+
+    /**
+     * Returns the end y-value for an item (the same as the y-value).
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The y-value.
+     */
+    @Override
+    public Number getEndY(int series, int item) {
+        return getY(series, item);
+    }
+
+    /**
+     * Returns the end y-value for an item as a double primitive (the same
+     * as the y-value).
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The y-value.
+     */
+    @Override
+    public double getEndYValue(int series, int item) {
+        return getYValue(series, item);
+    }
+
+    /**
+     * Receives notification of a change to the underlying dataset and
+     * passes it on to the listeners of this view.
+     *
+     * @param event  information about the change.
+     */
+    @Override
+    public void datasetChanged(DatasetChangeEvent event) {
+        fireDatasetChanged();
+    }
+
+    /**
+     * Tests this dataset for equality with an arbitrary object.
+     *
+     * @param obj  the object (<code>null</code> permitted).
+     *
+     * @return A boolean.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof CumulativeHistogramDataset)) {
+            return false;
+        }
+        CumulativeHistogramDataset that = (CumulativeHistogramDataset) obj;
+        if (this.relative != that.relative) {
+            return false;
+        }
+        return ObjectUtilities.equal(this.underlying, that.underlying);
+    }
+
+    /**
+     * Returns a hash code for this dataset.
+     *
+     * @return A hash code.
+     */
+    @Override
+    public int hashCode() {
+        // HistogramDataset does not override hashCode()
+        return 31 * this.underlying.getSeriesCount()
+                + (this.relative ? 1 : 0);
+    }
+
+    /**
+     * Returns an independent copy of this dataset, viewing a clone of the
+     * underlying dataset.
+     *
+     * @return A clone.
+     *
+     * @throws CloneNotSupportedException if the dataset cannot be cloned.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        CumulativeHistogramDataset clone
+                = (CumulativeHistogramDataset) super.clone();
+        clone.underlying = (HistogramDataset) this.underlying.clone();
+        clone.underlying.addChangeListener(clone);
+        return clone;
+    }
+
+}
@@ -0,0 +1,165 @@
+package org.jfree.data.statistics;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+
+/**
+ * A rule for choosing the number of bins of a histogram from the data, for
+ * use with {@link HistogramDataset#addSeries(Comparable, double[],
+ * HistogramBinRule)}.
+ */
+public final class HistogramBinRule implements Serializable {
+
+    /** For serialization. */
+    private static final long serialVersionUID = -2763418195746613260L;
+
+    /** The largest number of bins a rule will choose. */
+    public static final int MAXIMUM_BINS = 10000;
+
+    /**
+     * Sturges' rule, <code>log2(n) + 1</code> bins.  Suits small, roughly
+     * normal samples; too few bins for large ones.
+     */
+    public static final HistogramBinRule STURGES
+            = new HistogramBinRule("HistogramBinRule.STURGES");
+
+    /**
+     * Scott's rule, a bin width of <code>3.49 * sigma / n^(1/3)</code>.
+     * Suits roughly normal data.
+     */
+    public static final HistogramBinRule SCOTT
+            = new HistogramBinRule("HistogramBinRule.SCOTT");
+
+    /**
+     * The Freedman-Diaconis rule, a bin width of
+     * <code>2 * IQR / n^(1/3)</code>.  Robust to outliers and heavy tails;
+     * the interquartile range is estimated with a {@link QuantileSketch}.
+     */
+    public static final HistogramBinRule FREEDMAN_DIACONIS
+            = new HistogramBinRule("HistogramBinRule.FREEDMAN_DIACONIS");
+
+    /** The name. */
+    private String name;
+
+    /**
+     * Private constructor.
+     *
+     * @param name  the name.
+     */
+    private HistogramBinRule(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the number of bins this rule chooses for an array of values,
+     * computing the statistics it needs in a single pass over the array
+     * (NaN values are ignored).
+     *
+     * @param values  the values (<code>null</code> not permitted and
+     *     zero-length array not permitted).
+     *
+     * @return The number of bins (between 1 and {@link #MAXIMUM_BINS}).
+     */
+    public int getBinCount(double[] values) {
+        double[] stats = HistogramBinning.getStatistics(values,
+                this == FREEDMAN_DIACONIS);
+        return getBinCount((long) stats[0], stats[2] - stats[1], stats[3],
+                stats[4]);
+    }
+
+    /**
+     * Returns the number of bins this rule chooses for a sample with known
+     * statistics.  Scott's and the Freedman-Diaconis rules fall back to
+     * Sturges' rule when the spread they use is zero.
+     *
+     * @param n  the number of values.
+     * @param range  the difference between the largest and smallest values.
+     * @param standardDeviation  the standard deviation (only used by
+     *     {@link #SCOTT}).
+     * @param interquartileRange  the interquartile range (only used by
+     *     {@link #FREEDMAN_DIACONIS}).
+     *
+     * @return The number of bins (between 1 and {@link #MAXIMUM_BINS}).
+     */
+    public int getBinCount(long n, double range, double standardDeviation,
+            double interquartileRange) {
+        if (n < 2) {
+            return 1;
+        }
+        double binWidth = Double.NaN;
+        if (this == SCOTT) {
+            binWidth = 3.49 * standardDeviation / Math.cbrt(n);
+        }
+        else if (this == FREEDMAN_DIACONIS) {
+            binWidth = 2.0 * interquartileRange / Math.cbrt(n);
+        }
+        double bins;
+        if (binWidth > 0.0 && range > 0.0) {
+            bins = Math.ceil(range / binWidth);
+        }
+        else {
+            bins = Math.ceil(Math.log(n) / Math.log(2.0)) + 1.0;
+        }
+        return (int) Math.max(1.0, Math.min(bins, MAXIMUM_BINS));
+    }
+
+    /**
+     * Returns a string representing the object.
+     *
+     * @return The string.
+     */
+    @Override
+    public String toString() {
+        return this.name;
+    }
+
+    /**
+     * Tests this rule for equality with an arbitrary object.
+     *
+     * @param obj  the object (<code>null</code> permitted).
+     *
+     * @return A boolean.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof HistogramBinRule)) {
+            return false;
+        }
+        HistogramBinRule that = (HistogramBinRule) obj;
+        return this.name.equals(that.name);
+    }
+
+    /**
+     * Returns a hash code for this object.
+     *
+     * @return A hash code.
+     */
+    @Override
+    public int hashCode() {
+        return this.name.hashCode();
+    }
+
+    /**
+     * Ensures that serialization returns the unique instances.
+     *
+     * @return The object.
+     *
+     * @throws ObjectStreamException if there is a problem.
+     */
+    private Object readResolve() throws ObjectStreamException {
+        if (this.equals(HistogramBinRule.STURGES)) {
+            return HistogramBinRule.STURGES;
+        }
+        else if (this.equals(HistogramBinRule.SCOTT)) {
+            return HistogramBinRule.SCOTT;
+        }
+        else if (this.equals(HistogramBinRule.FREEDMAN_DIACONIS)) {
+            return HistogramBinRule.FREEDMAN_DIACONIS;
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,808 @@
+package org.jfree.data.statistics;
+
+import java.nio.DoubleBuffer;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+
+/**
+ * Static methods that bin primitive arrays for {@link HistogramDataset}.
+ * Large arrays are split across the common fork-join pool, each task
+ * counting into its own array and the counts being added together when the
+ * tasks join, so no values are boxed and no counts are shared between
+ * threads.
+ * <p>
+ * The bin indices are computed by a vectorised kernel when the
+ * <code>jdk.incubator.vector</code> module is available (see
+ * {@link #isVectorized()}), otherwise by a scalar loop.  Setting the system
+ * property <code>org.jfree.data.statistics.vectorBinning</code> to
+ * <code>false</code> disables the kernel.
+ */
+public final class HistogramBinning {
+
+    /** Arrays shorter than this are binned on the calling thread. */
+    public static final int PARALLEL_THRESHOLD = 1 << 20;
+
+    /** The smallest number of values a task handles without splitting. */
+    private static final int MIN_TASK_SIZE = 1 << 16;
+
+    /** The vectorised kernel, or <code>null</code> if not available. */
+    private static final Kernel KERNEL = loadKernel();
+
+    /** The kernel for equal width bins. */
+    private static final Kernel UNIFORM = (KERNEL != null) ? KERNEL
+            : new Kernel() {
+                @Override
+                public void count(double[] values, int from, int to,
+                        double minimum, double maximum, long[] counts) {
+                    countScalar(values, from, to, minimum, maximum, counts);
+                }
+            };
+
+    /**
+     * Counts part of an array into the bins of an array of counts.
+     */
+    interface Kernel {
+
+        /**
+         * Adds the values <code>values[from]</code> to
+         * <code>values[to - 1]</code> to the counts of the equal width bins
+         * between <code>minimum</code> and <code>maximum</code>.
+         *
+         * @param values  the values.
+         * @param from  the first index (inclusive).
+         * @param to  the last index (exclusive).
+         * @param minimum  the lower bound of the bin range.
+         * @param maximum  the upper bound of the bin range.
+         * @param counts  the counts, one per bin.
+         */
+        void count(double[] values, int from, int to, double minimum,
+                double maximum, long[] counts);
+
+    }
+
+    private HistogramBinning() {
+        // no instances
+    }
+
+    /**
+     * Loads the vectorised kernel by name, so that this class does not
+     * depend on the incubator module at compile or run time.
+     *
+     * @return The kernel, or <code>null</code>.
+     */
+    private static Kernel loadKernel() {
+        if (!Boolean.parseBoolean(System.getProperty(
+                "org.jfree.data.statistics.vectorBinning", "true"))) {
+            return null;
+        }
+        try {
+            return (Kernel) Class.forName(
+                    "org.jfree.data.statistics.VectorBinningKernel")
+                    .getConstructor().newInstance();
+        }
+        catch (Exception e) {
+            return null;
+        }
+        catch (LinkageError e) {
+            // the jdk.incubator.vector module is not present
+            return null;
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if bins are counted with the vectorised
+     * kernel.
+     *
+     * @return A boolean.
+     */
+    public static boolean isVectorized() {
+        return KERNEL != null;
+    }
+
+    /**
+     * Returns the index of the bin a value falls in.  Values less than
+     * <code>minimum</code> go in the first bin, values not less than
+     * <code>maximum</code> (and NaN) in the last bin.
+     *
+     * @param value  the value.
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     * @param bins  the number of bins.
+     *
+     * @return The bin index.
+     */
+    static int binIndex(double value, double minimum, double maximum,
+            int bins) {
+        int binIndex = bins - 1;
+        if (value < maximum) {
+            double fraction = (value - minimum) / (maximum - minimum);
+            if (fraction < 0.0) {
+                fraction = 0.0;
+            }
+            binIndex = (int) (fraction * bins);
+            // rounding could result in binIndex being equal to bins
+            // which will cause an IndexOutOfBoundsException - see bug
+            // report 1553088
+            if (binIndex >= bins) {
+                binIndex = bins - 1;
+            }
+        }
+        return binIndex;
+    }
+
+    /**
+     * Returns the index of the bin a value falls in, for bins with
+     * arbitrary boundaries, by binary search.  A value on a boundary goes in
+     * the higher bin, values outside the boundaries go in the first or last
+     * bin and NaN goes in the last bin, as for equal width bins.
+     *
+     * @param value  the value.
+     * @param edges  the bin boundaries, in ascending order.
+     *
+     * @return The bin index.
+     */
+    static int binIndex(double value, double[] edges) {
+        int bins = edges.length - 1;
+        if (!(value < edges[bins])) {
+            return bins - 1;
+        }
+        int low = 0;
+        int high = bins - 1;
+        // find the last bin whose start is not above the value
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (edges[middle] <= value) {
+                low = middle;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the bin a value falls in, for bins of equal width
+     * on a log scale (see {@link #makeLogEdges(double, double, int)}).  The
+     * index is computed from the logarithm of the value and then checked
+     * against the boundaries, so it always agrees with
+     * {@link #binIndex(double, double[])}.  Values that are zero or negative
+     * go in the first bin.
+     *
+     * @param value  the value.
+     * @param edges  the bin boundaries.
+     * @param logMinimum  the logarithm of the first boundary.
+     * @param logScale  the number of bins divided by the logarithm of the
+     *     ratio of the last and first boundaries.
+     *
+     * @return The bin index.
+     */
+    static int logBinIndex(double value, double[] edges, double logMinimum,
+            double logScale) {
+        int bins = edges.length - 1;
+        if (!(value < edges[bins])) {
+            return bins - 1;
+        }
+        if (value <= edges[0]) {
+            return 0;
+        }
+        int binIndex = (int) ((Math.log(value) - logMinimum) * logScale);
+        if (binIndex >= bins) {
+            binIndex = bins - 1;
+        }
+        // correct for rounding near a boundary
+        if (value < edges[binIndex]) {
+            binIndex--;
+        }
+        else if (binIndex + 1 < bins && value >= edges[binIndex + 1]) {
+            binIndex++;
+        }
+        return binIndex;
+    }
+
+    /**
+     * Returns the boundaries of <code>bins</code> bins of equal width on a
+     * log scale between <code>minimum</code> and <code>maximum</code>.
+     *
+     * @param minimum  the lower bound of the bin range (greater than zero).
+     * @param maximum  the upper bound of the bin range (greater than
+     *     <code>minimum</code>).
+     * @param bins  the number of bins (must be at least 1).
+     *
+     * @return An array of <code>bins + 1</code> boundaries.
+     */
+    public static double[] makeLogEdges(double minimum, double maximum,
+            int bins) {
+        if (!(minimum > 0.0 && maximum > minimum)) {
+            throw new IllegalArgumentException(
+                    "Requires 0 < 'minimum' < 'maximum'.");
+        }
+        if (bins < 1) {
+            throw new IllegalArgumentException(
+                    "The 'bins' value must be at least 1.");
+        }
+        double[] edges = new double[bins + 1];
+        double logMinimum = Math.log(minimum);
+        double step = (Math.log(maximum) - logMinimum) / bins;
+        edges[0] = minimum;
+        for (int i = 1; i < bins; i++) {
+            edges[i] = Math.exp(logMinimum + i * step);
+        }
+        edges[bins] = maximum;
+        return edges;
+    }
+
+    /**
+     * Checks that bin boundaries are usable.
+     *
+     * @param edges  the boundaries.
+     */
+    static void checkEdges(double[] edges) {
+        if (edges == null) {
+            throw new IllegalArgumentException("Null 'edges' argument.");
+        }
+        if (edges.length < 2) {
+            throw new IllegalArgumentException(
+                    "The 'edges' array must hold at least two values.");
+        }
+        for (int i = 1; i < edges.length; i++) {
+            if (!(edges[i] > edges[i - 1])) {
+                throw new IllegalArgumentException(
+                        "The 'edges' must be finite and strictly increasing.");
+            }
+        }
+        if (Double.isInfinite(edges[0])
+                || Double.isInfinite(edges[edges.length - 1])) {
+            throw new IllegalArgumentException(
+                    "The 'edges' must be finite and strictly increasing.");
+        }
+    }
+
+    /**
+     * Counts the values falling in each of <code>bins</code> equal width
+     * bins between <code>minimum</code> and <code>maximum</code>, using the
+     * rules of {@link HistogramDataset#getBinIndex(Double, double, double,
+     * int)}.
+     *
+     * @param values  the values (<code>null</code> not permitted).
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     * @param bins  the number of bins (must be at least 1).
+     *
+     * @return The counts.
+     */
+    public static long[] countBins(double[] values, double minimum,
+            double maximum, int bins) {
+        if (values == null) {
+            throw new IllegalArgumentException("Null 'values' argument.");
+        }
+        if (bins < 1) {
+            throw new IllegalArgumentException(
+                    "The 'bins' value must be at least 1.");
+        }
+        return countBins(values, UNIFORM, minimum, maximum, bins);
+    }
+
+    /**
+     * Counts the values falling in each of the bins with the given
+     * boundaries, using binary search, in parallel for large arrays.  Values
+     * outside the boundaries are counted in the first or last bin.
+     *
+     * @param values  the values (<code>null</code> not permitted).
+     * @param edges  the bin boundaries, finite and strictly increasing
+     *     (<code>null</code> not permitted).
+     *
+     * @return The counts, one per bin.
+     */
+    public static long[] countBins(double[] values, final double[] edges) {
+        if (values == null) {
+            throw new IllegalArgumentException("Null 'values' argument.");
+        }
+        checkEdges(edges);
+        Kernel kernel = new Kernel() {
+            @Override
+            public void count(double[] values, int from, int to,
+                    double minimum, double maximum, long[] counts) {
+                for (int i = from; i < to; i++) {
+                    counts[binIndex(values[i], edges)]++;
+                }
+            }
+        };
+        int bins = edges.length - 1;
+        return countBins(values, kernel, edges[0], edges[bins], bins);
+    }
+
+    /**
+     * Counts the values falling in each of the bins created by
+     * {@link #makeLogEdges(double, double, int)}, computing bin indices from
+     * logarithms rather than by search, in parallel for large arrays.
+     *
+     * @param values  the values (<code>null</code> not permitted).
+     * @param edges  the bin boundaries (<code>null</code> not permitted).
+     *
+     * @return The counts, one per bin.
+     */
+    public static long[] countLogBins(double[] values, final double[] edges) {
+        if (values == null) {
+            throw new IllegalArgumentException("Null 'values' argument.");
+        }
+        checkEdges(edges);
+        final int bins = edges.length - 1;
+        final double logMinimum = Math.log(edges[0]);
+        final double logScale = bins / (Math.log(edges[bins]) - logMinimum);
+        Kernel kernel = new Kernel() {
+            @Override
+            public void count(double[] values, int from, int to,
+                    double minimum, double maximum, long[] counts) {
+                for (int i = from; i < to; i++) {
+                    counts[logBinIndex(values[i], edges, logMinimum,
+                            logScale)]++;
+                }
+            }
+        };
+        return countBins(values, kernel, edges[0], edges[bins], bins);
+    }
+
+    private static long[] countBins(double[] values, Kernel kernel,
+            double minimum, double maximum, int bins) {
+        if (values.length < PARALLEL_THRESHOLD) {
+            return count(values, 0, values.length, kernel, minimum, maximum,
+                    bins);
+        }
+        return ForkJoinPool.commonPool().invoke(new CountTask(values, 0,
+                values.length, getTaskSize(values.length), kernel, minimum,
+                maximum, bins));
+    }
+
+    /**
+     * Counts the values of a <code>float</code> array into equal width
+     * bins, without copying the array.
+     *
+     * @param values  the values (<code>null</code> not permitted).
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     * @param bins  the number of bins (must be at least 1).
+     *
+     * @return The counts.
+     */
+    public static long[] countBins(float[] values, double minimum,
+            double maximum, int bins) {
+        if (values == null) {
+            throw new IllegalArgumentException("Null 'values' argument.");
+        }
+        long[] counts = createCounts(bins);
+        for (int i = 0; i < values.length; i++) {
+            counts[binIndex(values[i], minimum, maximum, bins)]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the values of an <code>int</code> array into equal width bins,
+     * without copying the array.
+     *
+     * @param values  the values (<code>null</code> not permitted).
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     * @param bins  the number of bins (must be at least 1).
+     *
+     * @return The counts.
+     */
+    public static long[] countBins(int[] values, double minimum,
+            double maximum, int bins) {
+        if (values == null) {
+            throw new IllegalArgumentException("Null 'values' argument.");
+        }
+        long[] counts = createCounts(bins);
+        for (int i = 0; i < values.length; i++) {
+            counts[binIndex(values[i], minimum, maximum, bins)]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the remaining values of a buffer (from its position to its
+     * limit) into equal width bins.  The buffer may be direct or memory
+     * mapped; it is read with absolute gets, so its position is not
+     * changed.
+     *
+     * @param values  the values (<code>null</code> not permitted).
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     * @param bins  the number of bins (must be at least 1).
+     *
+     * @return The counts.
+     */
+    public static long[] countBins(DoubleBuffer values, double minimum,
+            double maximum, int bins) {
+        if (values == null) {
+            throw new IllegalArgumentException("Null 'values' argument.");
+        }
+        long[] counts = createCounts(bins);
+        int limit = values.limit();
+        for (int i = values.position(); i < limit; i++) {
+            counts[binIndex(values.get(i), minimum, maximum, bins)]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the values of an iterator into equal width bins, using
+     * {@link PrimitiveIterator.OfDouble#nextDouble()} so that nothing is
+     * boxed.
+     *
+     * @param values  the values (<code>null</code> not permitted).
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     * @param bins  the number of bins (must be at least 1).
+     *
+     * @return The counts.
+     */
+    public static long[] countBins(PrimitiveIterator.OfDouble values,
+            double minimum, double maximum, int bins) {
+        if (values == null) {
+            throw new IllegalArgumentException("Null 'values' argument.");
+        }
+        long[] counts = createCounts(bins);
+        while (values.hasNext()) {
+            counts[binIndex(values.nextDouble(), minimum, maximum, bins)]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the values of a stream into equal width bins.  The stream is
+     * consumed with a mutable reduction, so a parallel stream is binned in
+     * parallel with one count array per split.
+     *
+     * @param values  the values (<code>null</code> not permitted).
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     * @param bins  the number of bins (must be at least 1).
+     *
+     * @return The counts.
+     */
+    public static long[] countBins(DoubleStream values, final double minimum,
+            final double maximum, final int bins) {
+        if (values == null) {
+            throw new IllegalArgumentException("Null 'values' argument.");
+        }
+        createCounts(bins);
+        return values.collect(new Supplier<long[]>() {
+            @Override
+            public long[] get() {
+                return new long[bins];
+            }
+        }, new ObjDoubleConsumer<long[]>() {
+            @Override
+            public void accept(long[] counts, double value) {
+                counts[binIndex(value, minimum, maximum, bins)]++;
+            }
+        }, new BiConsumer<long[], long[]>() {
+            @Override
+            public void accept(long[] counts, long[] other) {
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] += other[i];
+                }
+            }
+        });
+    }
+
+    private static long[] createCounts(int bins) {
+        if (bins < 1) {
+            throw new IllegalArgumentException(
+                    "The 'bins' value must be at least 1.");
+        }
+        return new long[bins];
+    }
+
+    /**
+     * Returns the smallest and largest values in a <code>float</code>
+     * array.  NaN values are ignored.
+     *
+     * @param values  the values (<code>null</code> not permitted and
+     *     zero-length array not permitted).
+     *
+     * @return An array holding the minimum and the maximum.
+     */
+    public static double[] getRange(float[] values) {
+        if (values == null || values.length < 1) {
+            throw new IllegalArgumentException(
+                    "Null or zero length 'values' argument.");
+        }
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (int i = 0; i < values.length; i++) {
+            float v = values[i];
+            if (v < min) {
+                min = v;
+            }
+            if (v > max) {
+                max = v;
+            }
+        }
+        return new double[] {min, max};
+    }
+
+    /**
+     * Returns the smallest and largest values in an <code>int</code> array.
+     *
+     * @param values  the values (<code>null</code> not permitted and
+     *     zero-length array not permitted).
+     *
+     * @return An array holding the minimum and the maximum.
+     */
+    public static double[] getRange(int[] values) {
+        if (values == null || values.length < 1) {
+            throw new IllegalArgumentException(
+                    "Null or zero length 'values' argument.");
+        }
+        int min = values[0];
+        int max = values[0];
+        for (int i = 1; i < values.length; i++) {
+            int v = values[i];
+            if (v < min) {
+                min = v;
+            }
+            if (v > max) {
+                max = v;
+            }
+        }
+        return new double[] {min, max};
+    }
+
+    /**
+     * Returns the smallest and largest of the remaining values of a buffer,
+     * without changing its position.  NaN values are ignored.
+     *
+     * @param values  the values (<code>null</code> not permitted and must
+     *     have at least one value remaining).
+     *
+     * @return An array holding the minimum and the maximum.
+     */
+    public static double[] getRange(DoubleBuffer values) {
+        if (values == null || !values.hasRemaining()) {
+            throw new IllegalArgumentException(
+                    "Null or empty 'values' argument.");
+        }
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        int limit = values.limit();
+        for (int i = values.position(); i < limit; i++) {
+            double v = values.get(i);
+            if (v < min) {
+                min = v;
+            }
+            if (v > max) {
+                max = v;
+            }
+        }
+        return new double[] {min, max};
+    }
+
+    /**
+     * Returns the smallest and largest values in an array, in a single pass
+     * that is run in parallel for large arrays.  NaN values are ignored.
+     *
+     * @param values  the values (<code>null</code> not permitted and
+     *     zero-length array not permitted).
+     *
+     * @return An array holding the minimum and the maximum.
+     */
+    public static double[] getRange(double[] values) {
+        if (values == null || values.length < 1) {
+            throw new IllegalArgumentException(
+                    "Null or zero length 'values' argument.");
+        }
+        if (values.length < PARALLEL_THRESHOLD) {
+            return range(values, 0, values.length);
+        }
+        return ForkJoinPool.commonPool().invoke(new RangeTask(values, 0,
+                values.length, getTaskSize(values.length)));
+    }
+
+    /**
+     * Returns the statistics the {@link HistogramBinRule}s need, computed in
+     * a single pass over the values without sorting or copying them.  The
+     * mean and variance are accumulated with Welford's method; the
+     * quartiles, when requested, come from a {@link QuantileSketch}.  NaN
+     * values are ignored.
+     *
+     * @param values  the values (<code>null</code> not permitted and
+     *     zero-length array not permitted).
+     * @param quartiles  compute the interquartile range?
+     *
+     * @return An array holding the count, minimum, maximum, standard
+     *     deviation and interquartile range (NaN if not computed).
+     */
+    static double[] getStatistics(double[] values, boolean quartiles) {
+        if (values == null || values.length < 1) {
+            throw new IllegalArgumentException(
+                    "Null or zero length 'values' argument.");
+        }
+        QuantileSketch sketch = quartiles ? new QuantileSketch() : null;
+        long n = 0;
+        double mean = 0.0;
+        double m2 = 0.0;
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (int i = 0; i < values.length; i++) {
+            double v = values[i];
+            if (v != v) {
+                continue;
+            }
+            n++;
+            double delta = v - mean;
+            mean += delta / n;
+            m2 += delta * (v - mean);
+            if (v < min) {
+                min = v;
+            }
+            if (v > max) {
+                max = v;
+            }
+            if (sketch != null) {
+                sketch.update(v);
+            }
+        }
+        double iqr = Double.NaN;
+        if (sketch != null) {
+            double[] q = sketch.getQuantiles(new double[] {0.25, 0.75});
+            iqr = q[1] - q[0];
+        }
+        double sd = (n > 1) ? Math.sqrt(m2 / (n - 1)) : 0.0;
+        return new double[] {n, min, max, sd, iqr};
+    }
+
+    /**
+     * Returns the number of values each task should handle, aiming at a few
+     * tasks per worker thread so that the work balances.
+     *
+     * @param length  the number of values.
+     *
+     * @return The task size.
+     */
+    private static int getTaskSize(int length) {
+        int tasks = ForkJoinPool.getCommonPoolParallelism() * 4;
+        return Math.max(MIN_TASK_SIZE, length / tasks + 1);
+    }
+
+    private static long[] count(double[] values, int from, int to,
+            Kernel kernel, double minimum, double maximum, int bins) {
+        long[] counts = new long[bins];
+        kernel.count(values, from, to, minimum, maximum, counts);
+        return counts;
+    }
+
+    /**
+     * The scalar kernel.
+     *
+     * @param values  the values.
+     * @param from  the first index (inclusive).
+     * @param to  the last index (exclusive).
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     * @param counts  the counts, one per bin.
+     */
+    static void countScalar(double[] values, int from, int to,
+            double minimum, double maximum, long[] counts) {
+        int bins = counts.length;
+        for (int i = from; i < to; i++) {
+            counts[binIndex(values[i], minimum, maximum, bins)]++;
+        }
+    }
+
+    private static double[] range(double[] values, int from, int to) {
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            double v = values[i];
+            if (v < min) {
+                min = v;
+            }
+            if (v > max) {
+                max = v;
+            }
+        }
+        return new double[] {min, max};
+    }
+
+    /**
+     * Counts part of an array, splitting it in half until the parts are
+     * small enough.
+     */
+    private static class CountTask extends RecursiveTask<long[]> {
+
+        /** For serialization. */
+        private static final long serialVersionUID = 8161305972268384937L;
+
+        private final double[] values;
+        private final int from;
+        private final int to;
+        private final int taskSize;
+        private final Kernel kernel;
+        private final double minimum;
+        private final double maximum;
+        private final int bins;
+
+        CountTask(double[] values, int from, int to, int taskSize,
+                Kernel kernel, double minimum, double maximum, int bins) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.taskSize = taskSize;
+            this.kernel = kernel;
+            this.minimum = minimum;
+            this.maximum = maximum;
+            this.bins = bins;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (this.to - this.from <= this.taskSize) {
+                return count(this.values, this.from, this.to, this.kernel,
+                        this.minimum, this.maximum, this.bins);
+            }
+            int middle = (this.from + this.to) >>> 1;
+            CountTask left = new CountTask(this.values, this.from, middle,
+                    this.taskSize, this.kernel, this.minimum, this.maximum,
+                    this.bins);
+            left.fork();
+            long[] counts = new CountTask(this.values, middle, this.to,
+                    this.taskSize, this.kernel, this.minimum, this.maximum,
+                    this.bins).compute();
+            long[] leftCounts = left.join();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += leftCounts[i];
+            }
+            return counts;
+        }
+
+    }
+
+    /**
+     * Finds the range of part of an array, splitting it in half until the
+     * parts are small enough.
+     */
+    private static class RangeTask extends RecursiveTask<double[]> {
+
+        /** For serialization. */
+        private static final long serialVersionUID = -3357193018576020426L;
+
+        private final double[] values;
+        private final int from;
+        private final int to;
+        private final int taskSize;
+
+        RangeTask(double[] values, int from, int to, int taskSize) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.taskSize = taskSize;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (this.to - this.from <= this.taskSize) {
+                return range(this.values, this.from, this.to);
+            }
+            int middle = (this.from + this.to) >>> 1;
+            RangeTask left = new RangeTask(this.values, this.from, middle,
+                    this.taskSize);
+            left.fork();
+            double[] range = new RangeTask(this.values, middle, this.to,
+                    this.taskSize).compute();
+            double[] leftRange = left.join();
+            range[0] = Math.min(range[0], leftRange[0]);
+            range[1] = Math.max(range[1], leftRange[1]);
+            return range;
+        }
+
+    }
+
+}
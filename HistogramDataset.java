@@ -62,12 +62,20 @@
 
 package org.jfree.data.statistics;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.io.Serializable;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.stream.DoubleStream;
+
+import javax.swing.Timer;
+
 import org.jfree.chart.util.ParamChecks;
+import org.jfree.data.UnknownKeyException;
 
 import org.jfree.data.general.DatasetChangeEvent;
 import org.jfree.data.xy.AbstractIntervalXYDataset;
@@ -87,19 +95,60 @@ public class HistogramDataset extends AbstractIntervalXYDataset
     /** For serialization. */
     private static final long serialVersionUID = -6341668077370231153L;
 
-    /** A list of maps. */
-    private List list;
+    /**
+     * The pixel width assumed for series backed by a
+     * {@link MultiResolutionHistogram} until
+     * {@link #setDisplayRange(double, double, int)} is called.
+     */
+    public static final int DEFAULT_DISPLAY_WIDTH = 400;
+
+    /** The series. */
+    private List<Series> list;
 
     /** The histogram type. */
     private HistogramType type;
 
+    /**
+     * The minimum time (in milliseconds) between change events sent by
+     * {@link #addValue(Comparable, double)} and
+     * {@link #addValues(Comparable, double[])}.
+     */
+    private long changeInterval;
+
+    /** The time the last change event for added values was sent. */
+    private transient long lastChangeTime;
+
+    /** A flag that records added values no event has been sent for yet. */
+    private transient boolean changePending;
+
+    /** The timer that sends the event for values held back by the interval. */
+    private transient Timer flushTimer;
+
+    /**
+     * The lower bound of the visible range for series backed by a
+     * {@link MultiResolutionHistogram}, NaN for the whole range.
+     */
+    private double displayLower;
+
+    /**
+     * The upper bound of the visible range for series backed by a
+     * {@link MultiResolutionHistogram}, NaN for the whole range.
+     */
+    private double displayUpper;
+
+    /** The width of the visible range in pixels. */
+    private int displayWidth;
+
     /**
      * Creates a new (empty) dataset with a default type of
      * {@link HistogramType}.FREQUENCY.
      */
     public HistogramDataset() {
-        this.list = new ArrayList();
+        this.list = new ArrayList<Series>();
         this.type = HistogramType.FREQUENCY;
+        this.displayLower = Double.NaN;
+        this.displayUpper = Double.NaN;
+        this.displayWidth = DEFAULT_DISPLAY_WIDTH;
     }
 
     /**
@@ -133,8 +182,48 @@ public class HistogramDataset extends AbstractIntervalXYDataset
      */
     public void addSeries(Comparable key, double[] values, int bins) {
         // defer argument checking...
-        double minimum = getMinimum(values);
-        double maximum = getMaximum(values);
+        double[] range = HistogramBinning.getRange(values);
+        addSeries(key, values, bins, range[0], range[1]);
+    }
+
+    /**
+     * Adds a series to the dataset, with the number of bins chosen by a
+     * rule, and sends a {@link DatasetChangeEvent} to all registered
+     * listeners.  The statistics the rule needs and the range of the values
+     * are found in one pass, then the values are binned in a second.
+     *
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param values  the values (<code>null</code> not permitted).
+     * @param rule  the bin count rule (<code>null</code> not permitted).
+     */
+    public void addSeries(Comparable key, double[] values,
+            HistogramBinRule rule) {
+        ParamChecks.nullNotPermitted(rule, "rule");
+        double[] stats = HistogramBinning.getStatistics(values,
+                rule == HistogramBinRule.FREEDMAN_DIACONIS);
+        int bins = rule.getBinCount((long) stats[0], stats[2] - stats[1],
+                stats[3], stats[4]);
+        addSeries(key, values, bins, stats[1], stats[2]);
+    }
+
+    /**
+     * Adds a series to the dataset, with the number of bins between
+     * <code>minimum</code> and <code>maximum</code> chosen by a rule, and
+     * sends a {@link DatasetChangeEvent} to all registered listeners.
+     *
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param values  the values (<code>null</code> not permitted).
+     * @param rule  the bin count rule (<code>null</code> not permitted).
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     */
+    public void addSeries(Comparable key, double[] values,
+            HistogramBinRule rule, double minimum, double maximum) {
+        ParamChecks.nullNotPermitted(rule, "rule");
+        double[] stats = HistogramBinning.getStatistics(values,
+                rule == HistogramBinRule.FREEDMAN_DIACONIS);
+        int bins = rule.getBinCount((long) stats[0], maximum - minimum,
+                stats[3], stats[4]);
         addSeries(key, values, bins, minimum, maximum);
     }
 
@@ -149,12 +238,175 @@ public class HistogramDataset extends AbstractIntervalXYDataset
      * @param bins  the number of bins (must be at least 1).
      * @param minimum  the lower bound of the bin range.
      * @param maximum  the upper bound of the bin range.
+     *
+     * @see HistogramBinning#countBins(double[], double, double, int)
      */
     public void addSeries(Comparable key, double[] values, int bins,
             double minimum, double maximum) {
     	if (values == null)
     		return;
-    	addSeries(key, com.google.common.primitives.Doubles.asList(values), bins, minimum, maximum);
+        ParamChecks.nullNotPermitted(key, "key");
+        addSeries(key, HistogramBinning.countBins(values, minimum, maximum,
+                bins), minimum, maximum);
+    }
+
+    /**
+     * Adds a series of <code>float</code> values to the dataset, using the
+     * specified number of bins, and sends a {@link DatasetChangeEvent} to
+     * all registered listeners.  The values are binned without being
+     * copied or boxed.
+     *
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param values  the values (<code>null</code> not permitted).
+     * @param bins  the number of bins (must be at least 1).
+     */
+    public void addSeries(Comparable key, float[] values, int bins) {
+        double[] range = HistogramBinning.getRange(values);
+        addSeries(key, values, bins, range[0], range[1]);
+    }
+
+    /**
+     * Adds a series of <code>float</code> values to the dataset, and sends
+     * a {@link DatasetChangeEvent} to all registered listeners.  Values
+     * outside the range are assigned to the first and last bins.
+     *
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param values  the values (<code>null</code> not permitted).
+     * @param bins  the number of bins (must be at least 1).
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     */
+    public void addSeries(Comparable key, float[] values, int bins,
+            double minimum, double maximum) {
+        ParamChecks.nullNotPermitted(key, "key");
+        addSeries(key, HistogramBinning.countBins(values, minimum, maximum,
+                bins), minimum, maximum);
+    }
+
+    /**
+     * Adds a series of <code>int</code> values to the dataset, using the
+     * specified number of bins, and sends a {@link DatasetChangeEvent} to
+     * all registered listeners.  The values are binned without being
+     * copied or boxed.
+     *
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param values  the values (<code>null</code> not permitted).
+     * @param bins  the number of bins (must be at least 1).
+     */
+    public void addSeries(Comparable key, int[] values, int bins) {
+        double[] range = HistogramBinning.getRange(values);
+        addSeries(key, values, bins, range[0], range[1]);
+    }
+
+    /**
+     * Adds a series of <code>int</code> values to the dataset, and sends a
+     * {@link DatasetChangeEvent} to all registered listeners.  Values
+     * outside the range are assigned to the first and last bins.
+     *
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param values  the values (<code>null</code> not permitted).
+     * @param bins  the number of bins (must be at least 1).
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     */
+    public void addSeries(Comparable key, int[] values, int bins,
+            double minimum, double maximum) {
+        ParamChecks.nullNotPermitted(key, "key");
+        addSeries(key, HistogramBinning.countBins(values, minimum, maximum,
+                bins), minimum, maximum);
+    }
+
+    /**
+     * Adds a series made from the remaining values of a buffer, using the
+     * specified number of bins, and sends a {@link DatasetChangeEvent} to
+     * all registered listeners.  Direct and memory mapped buffers are read
+     * in place and the buffer position is not changed.
+     *
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param values  the values (<code>null</code> not permitted).
+     * @param bins  the number of bins (must be at least 1).
+     */
+    public void addSeries(Comparable key, DoubleBuffer values, int bins) {
+        double[] range = HistogramBinning.getRange(values);
+        addSeries(key, values, bins, range[0], range[1]);
+    }
+
+    /**
+     * Adds a series made from the remaining values of a buffer, and sends a
+     * {@link DatasetChangeEvent} to all registered listeners.  Values
+     * outside the range are assigned to the first and last bins.
+     *
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param values  the values (<code>null</code> not permitted).
+     * @param bins  the number of bins (must be at least 1).
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     */
+    public void addSeries(Comparable key, DoubleBuffer values, int bins,
+            double minimum, double maximum) {
+        ParamChecks.nullNotPermitted(key, "key");
+        addSeries(key, HistogramBinning.countBins(values, minimum, maximum,
+                bins), minimum, maximum);
+    }
+
+    /**
+     * Adds a series made from the values of a stream, and sends a
+     * {@link DatasetChangeEvent} to all registered listeners.  The stream
+     * is consumed in one pass (in parallel if it is a parallel stream), so
+     * the bin range must be given.
+     *
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param values  the values (<code>null</code> not permitted).
+     * @param bins  the number of bins (must be at least 1).
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     */
+    public void addSeries(Comparable key, DoubleStream values, int bins,
+            double minimum, double maximum) {
+        ParamChecks.nullNotPermitted(key, "key");
+        addSeries(key, HistogramBinning.countBins(values, minimum, maximum,
+                bins), minimum, maximum);
+    }
+
+    /**
+     * Adds a series made from the values of a primitive iterator, and sends
+     * a {@link DatasetChangeEvent} to all registered listeners.  Unlike
+     * {@link #addSeries(Comparable, java.util.Iterator, int, double,
+     * double)} the values are read with <code>nextDouble()</code> and are
+     * not boxed.
+     *
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param values  the values (<code>null</code> not permitted).
+     * @param bins  the number of bins (must be at least 1).
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     */
+    public void addSeries(Comparable key, PrimitiveIterator.OfDouble values,
+            int bins, double minimum, double maximum) {
+        ParamChecks.nullNotPermitted(key, "key");
+        addSeries(key, HistogramBinning.countBins(values, minimum, maximum,
+                bins), minimum, maximum);
+    }
+
+    /**
+     * Adds a series of equal width bins that have been counted, and sends a
+     * {@link DatasetChangeEvent} to all registered listeners.
+     *
+     * @param key  the series key.
+     * @param counts  the bin counts.
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     */
+    private void addSeries(Comparable key, long[] counts, double minimum,
+            double maximum) {
+        int bins = counts.length;
+        long total = 0;
+        for (int i = 0; i < bins; i++) {
+            total += counts[i];
+        }
+        this.list.add(new Series(key, makeEdges(minimum, maximum, bins),
+                counts, total, (maximum - minimum) / bins));
+        fireDatasetChanged();
     }
     
     public void addSeries(Comparable key, java.lang.Iterable<Double> values, int bins,
@@ -187,21 +439,25 @@ public class HistogramDataset extends AbstractIntervalXYDataset
          return binList;
     }
     public static int getBinIndex(Double value, double minimum, double maximum, int bins) {
-    	int binIndex = bins - 1;
-        if (value < maximum) {
-            double fraction = (value.doubleValue() - minimum) / (maximum - minimum);
-            if (fraction < 0.0) {
-                fraction = 0.0;
-            }
-            binIndex = (int) (fraction * bins);
-            // rounding could result in binIndex being equal to bins
-            // which will cause an IndexOutOfBoundsException - see bug
-            // report 1553088
-            if (binIndex >= bins) {
-                binIndex = bins - 1;
-            }
-        }
-        return binIndex;
+        return getBinIndex(value.doubleValue(), minimum, maximum, bins);
+    }
+
+    /**
+     * Returns the index of the bin a value falls in, for <code>bins</code>
+     * equal width bins between <code>minimum</code> and
+     * <code>maximum</code>.  Values less than the minimum go in the first
+     * bin, values not less than the maximum (and NaN) in the last bin.
+     *
+     * @param value  the value.
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     * @param bins  the number of bins.
+     *
+     * @return The bin index.
+     */
+    public static int getBinIndex(double value, double minimum,
+            double maximum, int bins) {
+        return HistogramBinning.binIndex(value, minimum, maximum, bins);
     }
     
     public void addSeries(Comparable key, java.util.Iterator<Double> values, int bins,
@@ -212,197 +468,555 @@ public class HistogramDataset extends AbstractIntervalXYDataset
             throw new IllegalArgumentException(
                     "The 'bins' value must be at least 1.");
         }
-        double binWidth = (maximum - minimum) / bins;
-
-       // double lower = minimum;
-       // double upper;
-        List<HistogramBin> binList = makeBins(minimum, maximum, bins); //new ArrayList<HistogramBin>(bins);
-        int valuesUsed = 0;
+        long[] counts = new long[bins];
+        long valuesUsed = 0;
         // fill the bins
-        //for (int i = 0; i < values.length; i++) {
         while (values.hasNext()) {
         	Double value = values.next();
         	if (value == null)
         		continue;
-        	int binIndex = getBinIndex(value, minimum, maximum, bins);
-            HistogramBin bin = (HistogramBin) binList.get(binIndex);
-            bin.incrementCount();
+        	counts[getBinIndex(value.doubleValue(), minimum, maximum, bins)]++;
             valuesUsed++;
         }
-        // generic map for each series
-        Map<String,Object> map = new HashMap<String,Object>();
-        map.put("key", key);
-        map.put("bins", binList);
-        map.put("values.length", valuesUsed);
-        map.put("bin width", new Double(binWidth));
-        this.list.add(map);
+        this.list.add(new Series(key, makeEdges(minimum, maximum, bins),
+                counts, valuesUsed, (maximum - minimum) / bins));
         fireDatasetChanged();
     }
-    public void addSeries(Comparable key, List<HistogramBin> binList, int valuesUsed, double binWidth) {
-    	 Map<String,Object> map = new HashMap<String,Object>();
-         map.put("key", key);
-         map.put("bins", binList);
-         map.put("values.length", valuesUsed);
-         map.put("bin width", new Double(binWidth));
-         this.list.add(map);
-         fireDatasetChanged();
-    }
 
     /**
-     * Returns the minimum value in an array of values.
+     * Adds a series backed by a {@link LogLinearHistogram}, shown as
+     * <code>bins</code> equal width bins between the smallest and largest
+     * values in the histogram, and sends a {@link DatasetChangeEvent} to all
+     * registered listeners.  The dataset keeps a reference to the histogram
+     * and re-buckets it when it is read after values have been added to it
+     * (directly, through {@link #addValue(Comparable, double)} or by
+     * merging), so partial histograms can be merged in at any time; call
+     * {@link #fireDatasetChanged()} afterwards to redraw.
      *
-     * @param values  the values (<code>null</code> not permitted and
-     *                zero-length array not permitted).
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param histogram  the histogram (<code>null</code> not permitted).
+     * @param bins  the number of display bins (must be at least 1).
+     */
+    public void addSeries(Comparable key, LogLinearHistogram histogram,
+            int bins) {
+        addSeries(key, histogram, bins, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Adds a series backed by a {@link LogLinearHistogram}, shown as
+     * <code>bins</code> equal width bins between <code>minimum</code> and
+     * <code>maximum</code>, and sends a {@link DatasetChangeEvent} to all
+     * registered listeners.
      *
-     * @return The minimum value.
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param histogram  the histogram (<code>null</code> not permitted).
+     * @param bins  the number of display bins (must be at least 1).
+     * @param minimum  the lower bound of the bin range (NaN for the
+     *     smallest value in the histogram).
+     * @param maximum  the upper bound of the bin range (NaN for the
+     *     largest value in the histogram).
      */
-    private double getMinimum(double[] values) {
-        if (values == null || values.length < 1) {
+    public void addSeries(Comparable key, LogLinearHistogram histogram,
+            int bins, double minimum, double maximum) {
+        ParamChecks.nullNotPermitted(key, "key");
+        ParamChecks.nullNotPermitted(histogram, "histogram");
+        if (bins < 1) {
             throw new IllegalArgumentException(
-                    "Null or zero length 'values' argument.");
-        }
-        double min = Double.MAX_VALUE;
-        for (int i = 0; i < values.length; i++) {
-            if (values[i] < min) {
-                min = values[i];
-            }
+                    "The 'bins' value must be at least 1.");
         }
-        return min;
+        this.list.add(new SketchSeries(key, histogram, bins, minimum,
+                maximum));
+        fireDatasetChanged();
+    }
+
+    /**
+     * Adds a series backed by a {@link WindowedHistogram} and sends a
+     * {@link DatasetChangeEvent} to all registered listeners.  The dataset
+     * reads the bins of the histogram directly, so observations added to it
+     * (directly or through {@link #addValue(Comparable, double)}) and
+     * expired by {@link #tick()} show on the next redraw.
+     *
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param histogram  the histogram (<code>null</code> not permitted).
+     */
+    public void addSeries(Comparable key, WindowedHistogram histogram) {
+        ParamChecks.nullNotPermitted(key, "key");
+        ParamChecks.nullNotPermitted(histogram, "histogram");
+        this.list.add(new WindowSeries(key, histogram));
+        fireDatasetChanged();
     }
 
     /**
-     * Returns the maximum value in an array of values.
+     * Adds a series backed by a {@link MultiResolutionHistogram} and sends
+     * a {@link DatasetChangeEvent} to all registered listeners.  The series
+     * shows the bins of the histogram level that suits the range and pixel
+     * width last given to {@link #setDisplayRange(double, double, int)}.
      *
-     * @param values  the values (<code>null</code> not permitted and
-     *                zero-length array not permitted).
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param histogram  the histogram (<code>null</code> not permitted).
+     */
+    public void addSeries(Comparable key, MultiResolutionHistogram histogram) {
+        ParamChecks.nullNotPermitted(key, "key");
+        ParamChecks.nullNotPermitted(histogram, "histogram");
+        PyramidSeries s = new PyramidSeries(key, histogram);
+        s.setDisplayRange(this.displayLower, this.displayUpper,
+                this.displayWidth);
+        this.list.add(s);
+        fireDatasetChanged();
+    }
+
+    /**
+     * Sets the visible range of the series backed by a
+     * {@link MultiResolutionHistogram} and sends a {@link DatasetChangeEvent}
+     * to all registered listeners.  Each such series then holds only the
+     * bins that overlap the range, taken from the finest histogram level
+     * whose bins are at least {@link MultiResolutionHistogram#MIN_BIN_PIXELS}
+     * wide, so the cost of a zoom is proportional to the number of bins
+     * shown.  Call this when the domain axis range or the plot width
+     * changes, for example from an <code>AxisChangeListener</code>.  Since
+     * the series bounds follow the range, the axis should not auto-range.
      *
-     * @return The maximum value.
+     * @param lower  the lower bound of the visible range (NaN for the
+     *     whole histogram).
+     * @param upper  the upper bound of the visible range (NaN for the
+     *     whole histogram).
+     * @param pixelWidth  the width of the visible range in pixels (must be
+     *     at least 1).
      */
-    private double getMaximum(double[] values) {
-        if (values == null || values.length < 1) {
+    public void setDisplayRange(double lower, double upper, int pixelWidth) {
+        if (pixelWidth < 1) {
             throw new IllegalArgumentException(
-                    "Null or zero length 'values' argument.");
+                    "The 'pixelWidth' must be at least 1.");
         }
-        double max = -Double.MAX_VALUE;
-        for (int i = 0; i < values.length; i++) {
-            if (values[i] > max) {
-                max = values[i];
+        if (lower > upper) {
+            throw new IllegalArgumentException(
+                    "Requires 'lower' <= 'upper'.");
+        }
+        this.displayLower = lower;
+        this.displayUpper = upper;
+        this.displayWidth = pixelWidth;
+        for (Series s : this.list) {
+            if (s instanceof PyramidSeries) {
+                ((PyramidSeries) s).setDisplayRange(lower, upper,
+                        pixelWidth);
             }
         }
-        return max;
+        fireDatasetChanged();
     }
 
     /**
-     * Returns the bins for a series.
-     *
-     * @param series  the series index (in the range <code>0</code> to
-     *     <code>getSeriesCount() - 1</code>).
-     *
-     * @return A list of bins.
-     *
-     * @throws IndexOutOfBoundsException if <code>series</code> is outside the
-     *     specified range.
+     * Starts a new time slice in every series backed by a
+     * {@link WindowedHistogram} and sends a {@link DatasetChangeEvent} to
+     * all registered listeners.  Values added since the last change event
+     * are included in it.
      */
-    public List getBins(int series) {
-        Map map = (Map) this.list.get(series);
-        return (List) map.get("bins");
+    public void tick() {
+        for (Series s : this.list) {
+            if (s instanceof WindowSeries) {
+                ((WindowSeries) s).histogram.tick();
+            }
+        }
+        this.changePending = false;
+        this.lastChangeTime = System.currentTimeMillis();
+        fireDatasetChanged();
     }
 
     /**
-     * Returns the total number of observations for a series.
-     *
-     * @param series  the series index.
+     * Adds a series made from a list of bins that have already been filled,
+     * and sends a {@link DatasetChangeEvent} to all registered listeners.
      *
-     * @return The total.
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param binList  the bins, in order and each starting where the
+     *     previous one ends (<code>null</code> not permitted).
+     * @param valuesUsed  the number of observations.
+     * @param binWidth  the bin width.
      */
-    private int getTotal(int series) {
-        Map map = (Map) this.list.get(series);
-        return ((Integer) map.get("values.length")).intValue();
+    public void addSeries(Comparable key, List<HistogramBin> binList, int valuesUsed, double binWidth) {
+        ParamChecks.nullNotPermitted(key, "key");
+        ParamChecks.nullNotPermitted(binList, "binList");
+        int bins = binList.size();
+        if (bins < 1) {
+            throw new IllegalArgumentException(
+                    "The 'binList' must contain at least one bin.");
+        }
+        double[] edges = new double[bins + 1];
+        long[] counts = new long[bins];
+        for (int i = 0; i < bins; i++) {
+            HistogramBin bin = binList.get(i);
+            if (i > 0 && bin.getStartBoundary() != edges[i]) {
+                throw new IllegalArgumentException(
+                        "The bins in 'binList' must be adjacent.");
+            }
+            edges[i] = bin.getStartBoundary();
+            edges[i + 1] = bin.getEndBoundary();
+            counts[i] = bin.getCount();
+        }
+        Series s = new Series(key, edges, counts, valuesUsed, binWidth);
+        s.layout = Series.EDGES;
+        this.list.add(s);
+        fireDatasetChanged();
     }
 
     /**
-     * Returns the bin width for a series.
-     *
-     * @param series  the series index (zero based).
+     * Adds a series with bins of arbitrary width, and sends a
+     * {@link DatasetChangeEvent} to all registered listeners.  Bin i runs
+     * from <code>edges[i]</code> to <code>edges[i + 1]</code>, values on a
+     * boundary go in the higher bin and values outside the boundaries in
+     * the first or last bin.  Bins are found by binary search, here and in
+     * {@link #addValue(Comparable, double)} (pass an empty array to create a
+     * series to be filled that way).
      *
-     * @return The bin width.
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param values  the values (<code>null</code> not permitted).
+     * @param edges  the bin boundaries, finite and strictly increasing
+     *     (<code>null</code> not permitted).
      */
-    private double getBinWidth(int series) {
-        Map map = (Map) this.list.get(series);
-        return ((Double) map.get("bin width")).doubleValue();
+    public void addSeries(Comparable key, double[] values, double[] edges) {
+        ParamChecks.nullNotPermitted(key, "key");
+        long[] counts = HistogramBinning.countBins(values, edges);
+        Series s = new Series(key, edges.clone(), counts,
+                values.length, Double.NaN);
+        s.layout = Series.EDGES;
+        this.list.add(s);
+        fireDatasetChanged();
     }
 
     /**
-     * Returns the number of series in the dataset.
+     * Adds a series with bins of equal width on a log scale between
+     * <code>minimum</code> and <code>maximum</code> (see
+     * {@link HistogramBinning#makeLogEdges(double, double, int)}), and sends
+     * a {@link DatasetChangeEvent} to all registered listeners.  Values up
+     * to <code>minimum</code>, including zero and negative values, are
+     * counted in the first bin.  Bins are computed from the logarithm of
+     * the value, here and in {@link #addValue(Comparable, double)}, with
+     * no need to transform the data first.
      *
-     * @return The series count.
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param values  the values (<code>null</code> not permitted).
+     * @param bins  the number of bins (must be at least 1).
+     * @param minimum  the lower bound of the bin range (greater than zero).
+     * @param maximum  the upper bound of the bin range.
      */
-    @Override
-    public int getSeriesCount() {
-        return this.list.size();
+    public void addLogSeries(Comparable key, double[] values, int bins,
+            double minimum, double maximum) {
+        ParamChecks.nullNotPermitted(key, "key");
+        double[] edges = HistogramBinning.makeLogEdges(minimum, maximum, bins);
+        long[] counts = HistogramBinning.countLogBins(values, edges);
+        Series s = new Series(key, edges, counts, values.length, Double.NaN);
+        s.layout = Series.LOG;
+        this.list.add(s);
+        fireDatasetChanged();
     }
 
     /**
-     * Returns the key for a series.
-     *
-     * @param series  the series index (in the range <code>0</code> to
-     *     <code>getSeriesCount() - 1</code>).
-     *
-     * @return The series key.
+     * Adds an empty series to the dataset, to be filled later with
+     * {@link #addValue(Comparable, double)} or
+     * {@link #addValues(Comparable, double[])}, and sends a
+     * {@link DatasetChangeEvent} to all registered listeners.
      *
-     * @throws IndexOutOfBoundsException if <code>series</code> is outside the
-     *     specified range.
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param bins  the number of bins (must be at least 1).
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
      */
-    @Override
-    public Comparable getSeriesKey(int series) {
-        Map map = (Map) this.list.get(series);
-        return (Comparable) map.get("key");
+    public void addSeries(Comparable key, int bins, double minimum,
+            double maximum) {
+        addSeries(key, new double[0], bins, minimum, maximum);
     }
 
     /**
-     * Returns the number of data items for a series.
-     *
-     * @param series  the series index (in the range <code>0</code> to
-     *     <code>getSeriesCount() - 1</code>).
+     * Returns the time (in milliseconds) that must pass between two change
+     * events sent for added values.
      *
-     * @return The item count.
+     * @return The interval.
      *
-     * @throws IndexOutOfBoundsException if <code>series</code> is outside the
-     *     specified range.
+     * @see #setChangeInterval(long)
      */
-    @Override
-    public int getItemCount(int series) {
-        return getBins(series).size();
+    public long getChangeInterval() {
+        return this.changeInterval;
     }
 
     /**
-     * Returns the X value for a bin.  This value won't be used for plotting
-     * histograms, since the renderer will ignore it.  But other renderers can
-     * use it (for example, you could use the dataset to create a line
-     * chart).
+     * Sets the minimum time (in milliseconds) between two change events
+     * sent for added values.  With an interval of zero (the default) every
+     * call to {@link #addValue(Comparable, double)} or
+     * {@link #addValues(Comparable, double[])} sends an event.  With a
+     * larger interval, values added sooner than that after the last event
+     * are counted at once and reported by a single event once the interval
+     * has passed, sent by a <code>javax.swing.Timer</code> on the event
+     * dispatch thread (or earlier by {@link #flushChanges()}).  Values
+     * should then be added on the event dispatch thread too, as for any
+     * other dataset that is being charted.
      *
-     * @param series  the series index (in the range <code>0</code> to
-     *     <code>getSeriesCount() - 1</code>).
-     * @param item  the item index (zero based).
+     * @param millis  the interval (zero or more).
+     */
+    public void setChangeInterval(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException(
+                    "The 'millis' value must not be negative.");
+        }
+        this.changeInterval = millis;
+    }
+
+    /**
+     * Adds an observation to an existing series, incrementing the count of
+     * the bin it falls in.  Values outside the bin range are counted in the
+     * first or last bin, as in {@link #addSeries(Comparable, double[], int,
+     * double, double)}.
      *
-     * @return The start value.
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param value  the value.
      *
-     * @throws IndexOutOfBoundsException if <code>series</code> is outside the
-     *     specified range.
+     * @throws UnknownKeyException if there is no series with the key.
      */
-    @Override
-    public Number getX(int series, int item) {
-        List bins = getBins(series);
-        HistogramBin bin = (HistogramBin) bins.get(item);
-        double x = (bin.getStartBoundary() + bin.getEndBoundary()) / 2.;
-        return new Double(x);
+    public void addValue(Comparable key, double value) {
+        getSeries(key).add(value);
+        valuesAdded();
     }
 
     /**
-     * Returns the y-value for a bin (calculated to take into account the
-     * histogram type).
+     * Adds observations to an existing series, incrementing the counts of
+     * the bins they fall in, and sends at most one change event for the
+     * whole array.
      *
-     * @param series  the series index (in the range <code>0</code> to
+     * @param key  the series key (<code>null</code> not permitted).
+     * @param values  the values (<code>null</code> not permitted).
+     *
+     * @throws UnknownKeyException if there is no series with the key.
+     */
+    public void addValues(Comparable key, double[] values) {
+        ParamChecks.nullNotPermitted(values, "values");
+        Series s = getSeries(key);
+        for (int i = 0; i < values.length; i++) {
+            s.add(values[i]);
+        }
+        valuesAdded();
+    }
+
+    /**
+     * Sends a {@link DatasetChangeEvent} to all registered listeners if
+     * values have been added since the last event.
+     *
+     * @see #setChangeInterval(long)
+     */
+    public void flushChanges() {
+        if (this.flushTimer != null) {
+            this.flushTimer.stop();
+        }
+        if (this.changePending) {
+            this.changePending = false;
+            this.lastChangeTime = System.currentTimeMillis();
+            fireDatasetChanged();
+        }
+    }
+
+    /**
+     * Sends a change event for added values, or, if the last event was sent
+     * less than the change interval ago, starts a timer that sends it when
+     * the interval has passed.
+     */
+    private void valuesAdded() {
+        this.changePending = true;
+        long wait = this.changeInterval
+                - (System.currentTimeMillis() - this.lastChangeTime);
+        if (this.changeInterval <= 0 || wait <= 0) {
+            flushChanges();
+            return;
+        }
+        if (this.flushTimer == null) {
+            this.flushTimer = new Timer(0, new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    flushChanges();
+                }
+            });
+            this.flushTimer.setRepeats(false);
+        }
+        if (!this.flushTimer.isRunning()) {
+            this.flushTimer.setInitialDelay(
+                    (int) Math.min(wait, Integer.MAX_VALUE));
+            this.flushTimer.start();
+        }
+    }
+
+    /**
+     * Returns the series with the specified key.
+     *
+     * @param key  the series key (<code>null</code> not permitted).
+     *
+     * @return The series.
+     *
+     * @throws UnknownKeyException if there is no series with the key.
+     */
+    private Series getSeries(Comparable key) {
+        ParamChecks.nullNotPermitted(key, "key");
+        int series = indexOf(key);
+        if (series < 0) {
+            throw new UnknownKeyException("Key not found: " + key);
+        }
+        return this.list.get(series);
+    }
+
+    /**
+     * Returns a series, bringing its bins up to date first.
+     *
+     * @param series  the series index.
+     *
+     * @return The series.
+     */
+    private Series getSeries(int series) {
+        Series s = this.list.get(series);
+        s.refresh();
+        return s;
+    }
+
+    /**
+     * Returns the boundaries of equal width bins, computed the same way as
+     * {@link #makeBins(double, double, int)}.
+     *
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     * @param bins  the number of bins.
+     *
+     * @return An array of <code>bins + 1</code> boundaries.
+     */
+    private static double[] makeEdges(double minimum, double maximum,
+            int bins) {
+        double[] edges = new double[bins + 1];
+        double binWidth = (maximum - minimum) / bins;
+        edges[0] = minimum;
+        for (int i = 1; i < bins; i++) {
+            edges[i] = minimum + i * binWidth;
+        }
+        edges[bins] = maximum;
+        return edges;
+    }
+
+    /**
+     * Returns the bins for a series.
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     *
+     * @return A list of bins, built from the bin counts in O(bins) the first
+     *     time it is requested (changing the bins does not change the
+     *     dataset).  Since {@link HistogramBin} counts are <code>int</code>
+     *     values, counts above <code>Integer.MAX_VALUE</code> are capped.
+     *
+     * @throws IndexOutOfBoundsException if <code>series</code> is outside the
+     *     specified range.
+     */
+    public List getBins(int series) {
+        return getSeries(series).getBins();
+    }
+
+    /**
+     * Returns the total number of observations for a series.
+     *
+     * @param series  the series index.
+     *
+     * @return The total.
+     */
+    private long getTotal(int series) {
+        return getSeries(series).total;
+    }
+
+    /**
+     * Returns the bin width for a series.
+     *
+     * @param series  the series index (zero based).
+     *
+     * @return The bin width.
+     */
+    private double getBinWidth(int series) {
+        return getSeries(series).binWidth;
+    }
+
+    /**
+     * Returns the number of series in the dataset.
+     *
+     * @return The series count.
+     */
+    @Override
+    public int getSeriesCount() {
+        return this.list.size();
+    }
+
+    /**
+     * Returns the key for a series.
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     *
+     * @return The series key.
+     *
+     * @throws IndexOutOfBoundsException if <code>series</code> is outside the
+     *     specified range.
+     */
+    @Override
+    public Comparable getSeriesKey(int series) {
+        return this.list.get(series).key;
+    }
+
+    /**
+     * Returns the number of data items for a series.
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     *
+     * @return The item count.
+     *
+     * @throws IndexOutOfBoundsException if <code>series</code> is outside the
+     *     specified range.
+     */
+    @Override
+    public int getItemCount(int series) {
+        return getSeries(series).edges.length - 1;
+    }
+
+    /**
+     * Returns the X value for a bin.  This value won't be used for plotting
+     * histograms, since the renderer will ignore it.  But other renderers can
+     * use it (for example, you could use the dataset to create a line
+     * chart).
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The start value.
+     *
+     * @throws IndexOutOfBoundsException if <code>series</code> is outside the
+     *     specified range.
+     */
+    @Override
+    public Number getX(int series, int item) {
+        return new Double(getXValue(series, item));
+    }
+
+    /**
+     * Returns the x-value (the middle of the bin) as a double primitive.
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The x-value.
+     *
+     * @throws IndexOutOfBoundsException if <code>series</code> is outside the
+     *     specified range.
+     */
+    @Override
+    public double getXValue(int series, int item) {
+        double[] edges = getSeries(series).edges;
+        return (edges[item] + edges[item + 1]) / 2.;
+    }
+
+    /**
+     * Returns the y-value for a bin (calculated to take into account the
+     * histogram type).
+     *
+     * @param series  the series index (in the range <code>0</code> to
      *     <code>getSeriesCount() - 1</code>).
      * @param item  the item index (zero based).
      *
@@ -413,23 +1027,25 @@ public class HistogramDataset extends AbstractIntervalXYDataset
      */
     @Override
     public Number getY(int series, int item) {
-        List bins = getBins(series);
-        HistogramBin bin = (HistogramBin) bins.get(item);
-        double total = getTotal(series);
-        double binWidth = getBinWidth(series);
+        return new Double(getYValue(series, item));
+    }
 
-        if (this.type == HistogramType.FREQUENCY) {
-            return new Double(bin.getCount());
-        }
-        else if (this.type == HistogramType.RELATIVE_FREQUENCY) {
-            return new Double(bin.getCount() / total);
-        }
-        else if (this.type == HistogramType.SCALE_AREA_TO_1) {
-            return new Double(bin.getCount() / (binWidth * total));
-        }
-        else { // pretty sure this shouldn't ever happen
-            throw new IllegalStateException();
-        }
+    /**
+     * Returns the y-value for a bin (calculated to take into account the
+     * histogram type) as a double primitive.
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The y-value.
+     *
+     * @throws IndexOutOfBoundsException if <code>series</code> is outside the
+     *     specified range.
+     */
+    @Override
+    public double getYValue(int series, int item) {
+        return getSeries(series).getYValues(this.type)[item];
     }
 
     /**
@@ -446,9 +1062,24 @@ public class HistogramDataset extends AbstractIntervalXYDataset
      */
     @Override
     public Number getStartX(int series, int item) {
-        List bins = getBins(series);
-        HistogramBin bin = (HistogramBin) bins.get(item);
-        return new Double(bin.getStartBoundary());
+        return new Double(getStartXValue(series, item));
+    }
+
+    /**
+     * Returns the start value for a bin as a double primitive.
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The start value.
+     *
+     * @throws IndexOutOfBoundsException if <code>series</code> is outside the
+     *     specified range.
+     */
+    @Override
+    public double getStartXValue(int series, int item) {
+        return getSeries(series).edges[item];
     }
 
     /**
@@ -465,9 +1096,24 @@ public class HistogramDataset extends AbstractIntervalXYDataset
      */
     @Override
     public Number getEndX(int series, int item) {
-        List bins = getBins(series);
-        HistogramBin bin = (HistogramBin) bins.get(item);
-        return new Double(bin.getEndBoundary());
+        return new Double(getEndXValue(series, item));
+    }
+
+    /**
+     * Returns the end value for a bin as a double primitive.
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The end value.
+     *
+     * @throws IndexOutOfBoundsException if <code>series</code> is outside the
+     *     specified range.
+     */
+    @Override
+    public double getEndXValue(int series, int item) {
+        return getSeries(series).edges[item + 1];
     }
 
     /**
@@ -489,6 +1135,24 @@ public class HistogramDataset extends AbstractIntervalXYDataset
         return getY(series, item);
     }
 
+    /**
+     * Returns the start y-value for a bin as a double primitive (the same as
+     * the y-value).
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The y-value.
+     *
+     * @throws IndexOutOfBoundsException if <code>series</code> is outside the
+     *     specified range.
+     */
+    @Override
+    public double getStartYValue(int series, int item) {
+        return getYValue(series, item);
+    }
+
     /**
      * Returns the end y-value for a bin (which is the same as the y-value,
      * this method exists only to support the general form of the
@@ -508,6 +1172,66 @@ public class HistogramDataset extends AbstractIntervalXYDataset
         return getY(series, item);
     }
 
+    /**
+     * Returns the end y-value for a bin as a double primitive (the same as
+     * the y-value).
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The y-value.
+     *
+     * @throws IndexOutOfBoundsException if <code>series</code> is outside the
+     *     specified range.
+     */
+    @Override
+    public double getEndYValue(int series, int item) {
+        return getYValue(series, item);
+    }
+
+    /**
+     * Returns the number of observations in a series up to the end of a
+     * bin (including observations outside the bin range, which are counted
+     * in the first and last bins).  The running totals are cached with the
+     * series and updated from the first changed bin on when values are
+     * added, so reading a whole series costs O(bins).
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The cumulative count.
+     *
+     * @throws IndexOutOfBoundsException if <code>series</code> is outside the
+     *     specified range.
+     *
+     * @see CumulativeHistogramDataset
+     */
+    public double getCumulativeCount(int series, int item) {
+        return getSeries(series).getCumulativeCount(item);
+    }
+
+    /**
+     * Returns the fraction of the observations in a series up to the end of
+     * a bin, the empirical distribution function at the end of the bin.
+     *
+     * @param series  the series index (in the range <code>0</code> to
+     *     <code>getSeriesCount() - 1</code>).
+     * @param item  the item index (zero based).
+     *
+     * @return The cumulative relative frequency.
+     *
+     * @throws IndexOutOfBoundsException if <code>series</code> is outside the
+     *     specified range.
+     *
+     * @see CumulativeHistogramDataset
+     */
+    public double getCumulativeFrequency(int series, int item) {
+        Series s = getSeries(series);
+        return s.getCumulativeCount(item) / s.getTotal();
+    }
+
     /**
      * Tests this dataset for equality with an arbitrary object.
      *
@@ -543,12 +1267,676 @@ public class HistogramDataset extends AbstractIntervalXYDataset
     @Override
     public Object clone() throws CloneNotSupportedException {
         HistogramDataset clone = (HistogramDataset) super.clone();
+        clone.flushTimer = null;
         int seriesCount = getSeriesCount();
-        clone.list = new java.util.ArrayList(seriesCount);
+        clone.list = new ArrayList<Series>(seriesCount);
         for (int i = 0; i < seriesCount; i++) {
-            clone.list.add(new HashMap((Map) this.list.get(i)));
+            clone.list.add((Series) this.list.get(i).clone());
         }
         return clone;
     }
 
+    /**
+     * The bins of one series, held as primitive arrays so that the
+     * accessors can read them without lookups or boxing.
+     */
+    private static class Series implements Cloneable, Serializable {
+
+        /** For serialization. */
+        private static final long serialVersionUID = 4521786343204427398L;
+
+        /** Bins of equal width. */
+        static final byte UNIFORM = 0;
+
+        /** Bins with arbitrary boundaries. */
+        static final byte EDGES = 1;
+
+        /** Bins of equal width on a log scale. */
+        static final byte LOG = 2;
+
+        /** How values are assigned to bins. */
+        byte layout;
+
+        /** The series key. */
+        Comparable key;
+
+        /** The bin boundaries, bin i runs from edges[i] to edges[i + 1]. */
+        double[] edges;
+
+        /** The number of observations in each bin. */
+        long[] counts;
+
+        /** The total number of observations. */
+        long total;
+
+        /** The bin width, NaN if the bins differ in width. */
+        double binWidth;
+
+        /** The bins returned by getBins(), built on demand. */
+        transient List<HistogramBin> bins;
+
+        /** The y-values for {@link #yType}, built on demand. */
+        transient double[] yValues;
+
+        /** The histogram type of the cached y-values. */
+        transient HistogramType yType;
+
+        /**
+         * The running totals of the bin counts, up to date for the bins
+         * below {@link #cumulativeValid}.
+         */
+        transient double[] cumulative;
+
+        /** The number of leading bins with up to date running totals. */
+        transient int cumulativeValid;
+
+        /** The log of the lower bound, for the {@link #LOG} layout. */
+        transient double logMinimum;
+
+        /**
+         * The bins per unit of log value for the {@link #LOG} layout, zero
+         * until {@link #add(double)} first needs it.
+         */
+        transient double logScale;
+
+        Series(Comparable key, double[] edges, long[] counts, long total,
+                double binWidth) {
+            this.key = key;
+            this.edges = edges;
+            this.counts = counts;
+            this.total = total;
+            this.binWidth = binWidth;
+        }
+
+        /**
+         * Returns the number of observations in a bin.
+         *
+         * @param item  the bin index.
+         *
+         * @return The count.
+         */
+        double getCount(int item) {
+            return this.counts[item];
+        }
+
+        /**
+         * Returns the total number of observations.
+         *
+         * @return The total.
+         */
+        double getTotal() {
+            return this.total;
+        }
+
+        /**
+         * Returns the width of a bin.
+         *
+         * @param item  the bin index.
+         *
+         * @return The width.
+         */
+        double getBinWidth(int item) {
+            if (Double.isNaN(this.binWidth)) {
+                return this.edges[item + 1] - this.edges[item];
+            }
+            return this.binWidth;
+        }
+
+        /**
+         * Returns the y-values of all bins for a histogram type, computing
+         * them once and keeping them until the counts or the type change.
+         * The array is never modified once returned.
+         *
+         * @param type  the histogram type.
+         *
+         * @return The y-values.
+         */
+        double[] getYValues(HistogramType type) {
+            double[] y = this.yValues;
+            if (y != null && this.yType == type) {
+                return y;
+            }
+            y = new double[this.edges.length - 1];
+            double total = getTotal();
+            for (int i = 0; i < y.length; i++) {
+                double count = getCount(i);
+                if (type == HistogramType.FREQUENCY) {
+                    y[i] = count;
+                }
+                else if (type == HistogramType.RELATIVE_FREQUENCY) {
+                    y[i] = count / total;
+                }
+                else if (type == HistogramType.SCALE_AREA_TO_1) {
+                    y[i] = count / (getBinWidth(i) * total);
+                }
+                else { // pretty sure this shouldn't ever happen
+                    throw new IllegalStateException();
+                }
+            }
+            this.yValues = y;
+            this.yType = type;
+            return y;
+        }
+
+        /**
+         * Returns the number of observations in the bins before the first
+         * one of this series, which is zero unless the series shows only
+         * part of its data.
+         *
+         * @return The count.
+         */
+        double getCountBefore() {
+            return 0.0;
+        }
+
+        /**
+         * Returns the number of observations up to the end of a bin.  The
+         * running totals are computed as far as the bin requested and kept,
+         * and an added value only invalidates them from its own bin on, so
+         * the cost of a full pass is O(bins) however often values are
+         * appended.
+         *
+         * @param item  the bin index.
+         *
+         * @return The cumulative count.
+         */
+        double getCumulativeCount(int item) {
+            double[] c = this.cumulative;
+            if (c == null || c.length != this.edges.length - 1) {
+                c = new double[this.edges.length - 1];
+                this.cumulative = c;
+                this.cumulativeValid = 0;
+            }
+            int valid = this.cumulativeValid;
+            if (item >= valid) {
+                double sum = (valid > 0) ? c[valid - 1] : getCountBefore();
+                for (int i = valid; i <= item; i++) {
+                    sum += getCount(i);
+                    c[i] = sum;
+                }
+                this.cumulativeValid = item + 1;
+            }
+            return c[item];
+        }
+
+        /**
+         * Discards the bins, y-values and running totals built from the
+         * counts.
+         */
+        void changed() {
+            changed(0);
+        }
+
+        /**
+         * Discards the bins and y-values built from the counts, and the
+         * running totals from a bin on.
+         *
+         * @param from  the first bin whose count changed.
+         */
+        void changed(int from) {
+            this.bins = null;
+            this.yValues = null;
+            if (from < this.cumulativeValid) {
+                this.cumulativeValid = from;
+            }
+        }
+
+        /**
+         * Brings the bins up to date with the data behind them, if any.
+         */
+        void refresh() {
+            // the counts are the data
+        }
+
+        /**
+         * Adds an observation to the bin it falls in, found the way the
+         * series layout requires.
+         *
+         * @param value  the value.
+         */
+        void add(double value) {
+            int bins = this.counts.length;
+            int bin;
+            if (this.layout == EDGES) {
+                bin = HistogramBinning.binIndex(value, this.edges);
+            }
+            else if (this.layout == LOG) {
+                if (this.logScale == 0.0) {
+                    // also after deserialization, the fields are transient
+                    this.logMinimum = Math.log(this.edges[0]);
+                    this.logScale = bins / (Math.log(this.edges[bins])
+                            - this.logMinimum);
+                }
+                bin = HistogramBinning.logBinIndex(value, this.edges,
+                        this.logMinimum, this.logScale);
+            }
+            else {
+                bin = HistogramBinning.binIndex(value, this.edges[0],
+                        this.edges[bins], bins);
+            }
+            this.counts[bin]++;
+            this.total++;
+            changed(bin);
+        }
+
+        /**
+         * Returns the bins as {@link HistogramBin} objects.
+         *
+         * @return The bins.
+         */
+        List<HistogramBin> getBins() {
+            if (this.bins == null) {
+                List<HistogramBin> result
+                        = new ArrayList<HistogramBin>(this.edges.length - 1);
+                for (int i = 0; i < this.edges.length - 1; i++) {
+                    long count = Math.round(getCount(i));
+                    result.add(new CountedBin(this.edges[i], this.edges[i + 1],
+                            (int) Math.min(count, Integer.MAX_VALUE)));
+                }
+                this.bins = result;
+            }
+            return this.bins;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            Series that = (Series) obj;
+            return ObjectUtilities.equal(this.key, that.key)
+                    && this.layout == that.layout
+                    && this.total == that.total
+                    && Double.compare(this.binWidth, that.binWidth) == 0
+                    && Arrays.equals(this.edges, that.edges)
+                    && Arrays.equals(this.counts, that.counts);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * ObjectUtilities.hashCode(this.key)
+                    + Arrays.hashCode(this.counts);
+        }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            Series clone = (Series) super.clone();
+            clone.edges = this.edges.clone();
+            clone.counts = this.counts.clone();
+            clone.bins = null;
+            clone.cumulative = null;
+            return clone;
+        }
+
+    }
+
+    /**
+     * A bin created with its count, since {@link HistogramBin} can only be
+     * filled one observation at a time.
+     */
+    private static class CountedBin extends HistogramBin {
+
+        /** For serialization. */
+        private static final long serialVersionUID = 5210385207337611367L;
+
+        /** The number of observations in the bin. */
+        private int count;
+
+        CountedBin(double start, double end, int count) {
+            super(start, end);
+            this.count = count;
+        }
+
+        @Override
+        public int getCount() {
+            return this.count;
+        }
+
+        @Override
+        public void incrementCount() {
+            this.count++;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof HistogramBin)) {
+                return false;
+            }
+            HistogramBin that = (HistogramBin) obj;
+            return getStartBoundary() == that.getStartBoundary()
+                    && getEndBoundary() == that.getEndBoundary()
+                    && this.count == that.getCount();
+        }
+
+        @Override
+        public int hashCode() {
+            long bits = Double.doubleToLongBits(getStartBoundary());
+            bits = 31 * bits + Double.doubleToLongBits(getEndBoundary());
+            return 31 * (int) (bits ^ (bits >>> 32)) + this.count;
+        }
+
+    }
+
+    /**
+     * A series whose bins are computed from a {@link LogLinearHistogram}
+     * each time the histogram has grown since they were last read.
+     */
+    private static class SketchSeries extends Series {
+
+        /** For serialization. */
+        private static final long serialVersionUID = -1394865290376051124L;
+
+        /** The histogram. */
+        LogLinearHistogram histogram;
+
+        /** The lower bound of the bins, NaN to follow the histogram. */
+        double minimum;
+
+        /** The upper bound of the bins, NaN to follow the histogram. */
+        double maximum;
+
+        /** The bin counts taken from the histogram. */
+        double[] weights;
+
+        /** The histogram count the bins were computed for. */
+        long refreshedCount;
+
+        SketchSeries(Comparable key, LogLinearHistogram histogram, int bins,
+                double minimum, double maximum) {
+            super(key, new double[bins + 1], new long[0], 0L, 0.0);
+            this.histogram = histogram;
+            this.minimum = minimum;
+            this.maximum = maximum;
+            this.weights = new double[bins];
+            this.refreshedCount = -1L;
+        }
+
+        @Override
+        double getCount(int item) {
+            return this.weights[item];
+        }
+
+        @Override
+        double getTotal() {
+            return this.total;
+        }
+
+        @Override
+        void refresh() {
+            long count = this.histogram.getCount();
+            if (count == this.refreshedCount) {
+                return;
+            }
+            int bins = this.weights.length;
+            double lower = this.minimum;
+            double upper = this.maximum;
+            if (Double.isNaN(lower)) {
+                lower = (count > 0) ? this.histogram.getMinimum() : 0.0;
+            }
+            if (Double.isNaN(upper)) {
+                upper = (count > 0) ? this.histogram.getMaximum() : 1.0;
+            }
+            this.edges = makeEdges(lower, upper, bins);
+            this.weights = this.histogram.getBinCounts(lower, upper, bins);
+            this.total = count;
+            this.binWidth = (upper - lower) / bins;
+            changed();
+            this.refreshedCount = count;
+        }
+
+        @Override
+        void add(double value) {
+            this.histogram.update(value);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof SketchSeries)) {
+                return false;
+            }
+            SketchSeries that = (SketchSeries) obj;
+            return ObjectUtilities.equal(this.key, that.key)
+                    && this.weights.length == that.weights.length
+                    && Double.compare(this.minimum, that.minimum) == 0
+                    && Double.compare(this.maximum, that.maximum) == 0
+                    && this.histogram.equals(that.histogram);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * ObjectUtilities.hashCode(this.key)
+                    + this.histogram.hashCode();
+        }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            SketchSeries clone = (SketchSeries) super.clone();
+            clone.histogram = (LogLinearHistogram) this.histogram.clone();
+            clone.weights = this.weights.clone();
+            return clone;
+        }
+
+    }
+
+    /**
+     * A series that reads its bins from a {@link WindowedHistogram}.
+     */
+    private static class WindowSeries extends Series {
+
+        /** For serialization. */
+        private static final long serialVersionUID = 3391047685216624031L;
+
+        /** The histogram. */
+        WindowedHistogram histogram;
+
+        WindowSeries(Comparable key, WindowedHistogram histogram) {
+            super(key, makeEdges(histogram.getMinimum(),
+                    histogram.getMaximum(), histogram.getBinCount()),
+                    new long[0], 0L, (histogram.getMaximum()
+                    - histogram.getMinimum()) / histogram.getBinCount());
+            this.histogram = histogram;
+        }
+
+        @Override
+        double getCount(int item) {
+            return this.histogram.getCount(item);
+        }
+
+        @Override
+        double getTotal() {
+            return this.histogram.getTotal();
+        }
+
+        /** The histogram change count the bins were built for. */
+        transient long refreshedChanges = -1L;
+
+        @Override
+        void refresh() {
+            long changes = this.histogram.getChangeCount();
+            if (changes != this.refreshedChanges) {
+                changed();
+                this.refreshedChanges = changes;
+            }
+        }
+
+        @Override
+        void add(double value) {
+            this.histogram.update(value);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof WindowSeries)) {
+                return false;
+            }
+            WindowSeries that = (WindowSeries) obj;
+            return ObjectUtilities.equal(this.key, that.key)
+                    && this.histogram.equals(that.histogram);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * ObjectUtilities.hashCode(this.key)
+                    + this.histogram.hashCode();
+        }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            WindowSeries clone = (WindowSeries) super.clone();
+            clone.histogram = (WindowedHistogram) this.histogram.clone();
+            return clone;
+        }
+
+    }
+
+    /**
+     * A series that shows the part of a {@link MultiResolutionHistogram} in
+     * the visible range, at the level that suits the pixel width.
+     */
+    private static class PyramidSeries extends Series {
+
+        /** For serialization. */
+        private static final long serialVersionUID = -2858140431768093526L;
+
+        /** The histogram. */
+        MultiResolutionHistogram histogram;
+
+        /** The lower bound of the visible range, NaN for the minimum. */
+        double lower;
+
+        /** The upper bound of the visible range, NaN for the maximum. */
+        double upper;
+
+        /** The width of the visible range in pixels. */
+        int pixelWidth;
+
+        /** The number of observations below the visible bins. */
+        long countBefore;
+
+        /** A flag that records a change of visible range. */
+        boolean rangeChanged;
+
+        /** The histogram change count the bins were built for. */
+        transient long refreshedChanges;
+
+        PyramidSeries(Comparable key, MultiResolutionHistogram histogram) {
+            super(key, new double[] {histogram.getMinimum(),
+                    histogram.getMaximum()}, new long[1], 0L,
+                    histogram.getMaximum() - histogram.getMinimum());
+            this.histogram = histogram;
+            this.rangeChanged = true;
+        }
+
+        void setDisplayRange(double lower, double upper, int pixelWidth) {
+            this.lower = lower;
+            this.upper = upper;
+            this.pixelWidth = pixelWidth;
+            this.rangeChanged = true;
+        }
+
+        @Override
+        void refresh() {
+            long changes = this.histogram.getChangeCount();
+            if (!this.rangeChanged && changes == this.refreshedChanges) {
+                return;
+            }
+            double minimum = this.histogram.getMinimum();
+            double maximum = this.histogram.getMaximum();
+            double visibleLower = Double.isNaN(this.lower) ? minimum
+                    : this.lower;
+            double visibleUpper = Double.isNaN(this.upper) ? maximum
+                    : this.upper;
+            double lo = Math.max(visibleLower, minimum);
+            double hi = Math.min(visibleUpper, maximum);
+            double pixels = this.pixelWidth;
+            if (!(hi > lo)) {
+                // nothing of the histogram is visible, show all of it
+                lo = minimum;
+                hi = maximum;
+            }
+            else {
+                // where the range extends past the histogram, only part of
+                // the width is covered by bins
+                pixels = pixels * (hi - lo) / (visibleUpper - visibleLower);
+            }
+            int level = this.histogram.getLevel(lo, hi, pixels);
+            int bins = this.histogram.getBinCount(level);
+            double width = this.histogram.getBinWidth(level);
+            int first = Math.min((int) ((lo - minimum) / width), bins - 1);
+            int last = Math.max(first, Math.min(
+                    (int) Math.ceil((hi - minimum) / width) - 1, bins - 1));
+            int n = last - first + 1;
+            double[] edges = new double[n + 1];
+            long[] counts = new long[n];
+            for (int i = 0; i < n; i++) {
+                edges[i] = minimum + (first + i) * width;
+                counts[i] = this.histogram.getCount(level, first + i);
+            }
+            edges[n] = (last == bins - 1) ? maximum
+                    : minimum + (last + 1) * width;
+            this.edges = edges;
+            this.counts = counts;
+            this.countBefore = this.histogram.getCountBefore(level, first);
+            this.total = this.histogram.getTotal();
+            this.binWidth = width;
+            changed();
+            this.rangeChanged = false;
+            this.refreshedChanges = changes;
+        }
+
+        @Override
+        double getCountBefore() {
+            return this.countBefore;
+        }
+
+        @Override
+        void add(double value) {
+            this.histogram.update(value);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof PyramidSeries)) {
+                return false;
+            }
+            PyramidSeries that = (PyramidSeries) obj;
+            return ObjectUtilities.equal(this.key, that.key)
+                    && Double.compare(this.lower, that.lower) == 0
+                    && Double.compare(this.upper, that.upper) == 0
+                    && this.pixelWidth == that.pixelWidth
+                    && this.histogram.equals(that.histogram);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * ObjectUtilities.hashCode(this.key)
+                    + this.histogram.hashCode();
+        }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            PyramidSeries clone = (PyramidSeries) super.clone();
+            clone.histogram
+                    = (MultiResolutionHistogram) this.histogram.clone();
+            clone.rangeChanged = true;
+            return clone;
+        }
+
+    }
+
 }
@@ -0,0 +1,34 @@
+package org.jfree.chart.plot;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+
+import org.jfree.chart.event.PlotChangeEvent;
+
+/**
+ * A plot that can bring an already drawn image up to date by drawing only
+ * the parts that changed since the last full draw.  The
+ * {@link org.jfree.chart.ChartPanel} uses this to update its off-screen
+ * buffer without redrawing the whole chart.
+ */
+public interface IncrementalPlot {
+
+    /**
+     * Draws the change described by a plot change event on top of the last
+     * full rendering of the plot.  The plot describes the changes it can
+     * draw in this way in the event itself, so that nothing has to be kept
+     * between the event and the drawing.
+     *
+     * @param g2  the graphics device holding the last full rendering.
+     * @param info  the rendering info for the last full rendering
+     *     (<code>null</code> permitted).
+     * @param event  the event being dispatched by the plot
+     *     (<code>null</code> not permitted).
+     *
+     * @return The area that was redrawn, or <code>null</code> if the change
+     *     cannot be drawn incrementally and the plot needs a full redraw.
+     */
+    public Rectangle2D drawIncrementalChanges(Graphics2D g2,
+            PlotRenderingInfo info, PlotChangeEvent event);
+
+}
@@ -0,0 +1,369 @@
+package org.jfree.data.statistics;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A mergeable histogram with log-linear buckets, in the style of an HDR
+ * histogram.  Every power of two is split into
+ * <code>2^precision</code> equal buckets, so a bucket is never wider than
+ * <code>2^-precision</code> of the values it holds, whatever their
+ * magnitude.  Only the powers of two that occur are allocated, so memory
+ * depends on the spread of the data and not on the number of values, and
+ * two histograms with the same precision merge by adding their counts.
+ * The count, minimum and maximum are exact.
+ * <p>
+ * A {@link HistogramDataset} series backed by one of these (see
+ * {@link HistogramDataset#addSeries(Comparable, LogLinearHistogram, int)})
+ * is re-bucketed to equal width display bins when it is read.
+ */
+public class LogLinearHistogram implements Cloneable, Serializable {
+
+    /** For serialization. */
+    private static final long serialVersionUID = -4069917635271938114L;
+
+    /** The default precision (buckets under 1% of their value wide). */
+    public static final int DEFAULT_PRECISION = 7;
+
+    /** The smallest exponent of a normal double. */
+    private static final int MIN_EXPONENT = Double.MIN_EXPONENT;
+
+    /** The number of exponents of normal doubles. */
+    private static final int EXPONENTS = Double.MAX_EXPONENT
+            - Double.MIN_EXPONENT + 1;
+
+    /** The number of bits of the mantissa used for the sub-buckets. */
+    private int precision;
+
+    /**
+     * The bucket counts for positive [0] and negative [1] values, one row
+     * per power of two, allocated on first use.
+     */
+    private long[][][] rows;
+
+    /** The number of values too close to zero for a normal exponent. */
+    private long zeroCount;
+
+    /** The number of values added. */
+    private long count;
+
+    /** The smallest value added. */
+    private double minimum;
+
+    /** The largest value added. */
+    private double maximum;
+
+    /**
+     * Creates a new histogram with the default precision.
+     */
+    public LogLinearHistogram() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates a new histogram.
+     *
+     * @param precision  the number of mantissa bits used to split each
+     *     power of two (1 to 16).
+     */
+    public LogLinearHistogram(int precision) {
+        if (precision < 1 || precision > 16) {
+            throw new IllegalArgumentException(
+                    "The 'precision' must be in the range 1 to 16.");
+        }
+        this.precision = precision;
+        this.rows = new long[2][EXPONENTS][];
+        this.minimum = Double.POSITIVE_INFINITY;
+        this.maximum = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Returns the precision.
+     *
+     * @return The precision.
+     */
+    public int getPrecision() {
+        return this.precision;
+    }
+
+    /**
+     * Returns the number of values added.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Returns the smallest value added.
+     *
+     * @return The minimum (positive infinity if no values were added).
+     */
+    public double getMinimum() {
+        return this.minimum;
+    }
+
+    /**
+     * Returns the largest value added.
+     *
+     * @return The maximum (negative infinity if no values were added).
+     */
+    public double getMaximum() {
+        return this.maximum;
+    }
+
+    /**
+     * Adds a value.  NaN values are ignored and infinite values are counted
+     * as the largest finite value of the same sign.
+     *
+     * @param value  the value.
+     */
+    public void update(double value) {
+        if (value != value) {
+            return;
+        }
+        if (Double.isInfinite(value)) {
+            value = (value > 0.0) ? Double.MAX_VALUE : -Double.MAX_VALUE;
+        }
+        if (value < this.minimum) {
+            this.minimum = value;
+        }
+        if (value > this.maximum) {
+            this.maximum = value;
+        }
+        this.count++;
+        double abs = Math.abs(value);
+        if (abs < Double.MIN_NORMAL) {
+            this.zeroCount++;
+            return;
+        }
+        long[][] sign = this.rows[value < 0.0 ? 1 : 0];
+        int row = Math.getExponent(abs) - MIN_EXPONENT;
+        if (sign[row] == null) {
+            sign[row] = new long[1 << this.precision];
+        }
+        sign[row][getSubBucket(abs)]++;
+    }
+
+    /**
+     * Adds an array of values.
+     *
+     * @param values  the values (<code>null</code> not permitted).
+     */
+    public void update(double[] values) {
+        for (int i = 0; i < values.length; i++) {
+            update(values[i]);
+        }
+    }
+
+    /**
+     * Adds the counts of another histogram to this one.
+     *
+     * @param other  the other histogram (<code>null</code> not permitted,
+     *     must have the same precision).
+     */
+    public void merge(LogLinearHistogram other) {
+        if (other.precision != this.precision) {
+            throw new IllegalArgumentException(
+                    "Cannot merge histograms with different precisions.");
+        }
+        for (int s = 0; s < 2; s++) {
+            for (int row = 0; row < EXPONENTS; row++) {
+                long[] from = other.rows[s][row];
+                if (from == null) {
+                    continue;
+                }
+                long[] to = this.rows[s][row];
+                if (to == null) {
+                    this.rows[s][row] = from.clone();
+                    continue;
+                }
+                for (int i = 0; i < to.length; i++) {
+                    to[i] += from[i];
+                }
+            }
+        }
+        this.zeroCount += other.zeroCount;
+        this.count += other.count;
+        this.minimum = Math.min(this.minimum, other.minimum);
+        this.maximum = Math.max(this.maximum, other.maximum);
+    }
+
+    /**
+     * Returns the counts of equal width bins between
+     * <code>minimum</code> and <code>maximum</code>, with values outside the
+     * range counted in the first and last bins as in
+     * {@link HistogramDataset}.  The count of a bucket that straddles bins
+     * is split between them in proportion to the overlap, so the results
+     * are generally not whole numbers.
+     *
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     * @param bins  the number of bins (must be at least 1).
+     *
+     * @return The bin counts.
+     */
+    public double[] getBinCounts(double minimum, double maximum, int bins) {
+        if (bins < 1) {
+            throw new IllegalArgumentException(
+                    "The 'bins' value must be at least 1.");
+        }
+        double[] result = new double[bins];
+        if (this.zeroCount > 0) {
+            addBucket(result, 0.0, 0.0, this.zeroCount, minimum, maximum);
+        }
+        int subBuckets = 1 << this.precision;
+        for (int s = 0; s < 2; s++) {
+            for (int row = 0; row < EXPONENTS; row++) {
+                long[] counts = this.rows[s][row];
+                if (counts == null) {
+                    continue;
+                }
+                int exponent = row + MIN_EXPONENT;
+                for (int i = 0; i < subBuckets; i++) {
+                    if (counts[i] == 0) {
+                        continue;
+                    }
+                    double lo = Math.scalb(1.0 + i / (double) subBuckets,
+                            exponent);
+                    double hi = Math.scalb(1.0 + (i + 1)
+                            / (double) subBuckets, exponent);
+                    if (s == 0) {
+                        addBucket(result, lo, hi, counts[i], minimum,
+                                maximum);
+                    }
+                    else {
+                        addBucket(result, -hi, -lo, counts[i], minimum,
+                                maximum);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Spreads the count of one bucket over the display bins, assuming the
+     * values are uniform within the bucket.
+     */
+    private void addBucket(double[] result, double lo, double hi,
+            double count, double minimum, double maximum) {
+        int bins = result.length;
+        // the extreme values are known exactly
+        lo = Math.max(lo, this.minimum);
+        hi = Math.min(hi, this.maximum);
+        if (!(hi > lo) || !(maximum > minimum)) {
+            result[HistogramBinning.binIndex(lo, minimum, maximum, bins)]
+                    += count;
+            return;
+        }
+        double width = hi - lo;
+        if (lo < minimum) {
+            result[0] += count * (Math.min(hi, minimum) - lo) / width;
+        }
+        if (hi > maximum) {
+            result[bins - 1] += count * (hi - Math.max(lo, maximum))
+                    / width;
+        }
+        double a = Math.max(lo, minimum);
+        double b = Math.min(hi, maximum);
+        if (!(b > a)) {
+            return;
+        }
+        double binWidth = (maximum - minimum) / bins;
+        int first = HistogramBinning.binIndex(a, minimum, maximum, bins);
+        int last = HistogramBinning.binIndex(b, minimum, maximum, bins);
+        for (int i = first; i <= last; i++) {
+            double start = (i == 0) ? minimum : minimum + i * binWidth;
+            double end = (i == bins - 1) ? maximum
+                    : minimum + (i + 1) * binWidth;
+            double overlap = Math.min(b, end) - Math.max(a, start);
+            if (overlap > 0.0) {
+                result[i] += count * overlap / width;
+            }
+        }
+    }
+
+    /**
+     * Returns the sub-bucket of a positive normal value within its power of
+     * two, taken from the top bits of the mantissa.
+     */
+    private int getSubBucket(double abs) {
+        long bits = Double.doubleToRawLongBits(abs);
+        return (int) ((bits >>> (52 - this.precision))
+                & ((1 << this.precision) - 1));
+    }
+
+    /**
+     * Tests this histogram for equality with an arbitrary object.
+     *
+     * @param obj  the object (<code>null</code> permitted).
+     *
+     * @return A boolean.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof LogLinearHistogram)) {
+            return false;
+        }
+        LogLinearHistogram that = (LogLinearHistogram) obj;
+        if (this.precision != that.precision || this.count != that.count
+                || this.zeroCount != that.zeroCount) {
+            return false;
+        }
+        if (this.count > 0 && (this.minimum != that.minimum
+                || this.maximum != that.maximum)) {
+            return false;
+        }
+        for (int s = 0; s < 2; s++) {
+            for (int row = 0; row < EXPONENTS; row++) {
+                long[] a = this.rows[s][row];
+                long[] b = that.rows[s][row];
+                if (a != b && !Arrays.equals(
+                        (a == null) ? new long[b.length] : a,
+                        (b == null) ? new long[a.length] : b)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a hash code for this histogram.
+     *
+     * @return A hash code.
+     */
+    @Override
+    public int hashCode() {
+        long bits = 31 * this.count + this.precision;
+        bits = 31 * bits + Double.doubleToLongBits(this.minimum);
+        return (int) (bits ^ (bits >>> 32));
+    }
+
+    /**
+     * Returns an independent copy of this histogram.
+     *
+     * @return A clone.
+     *
+     * @throws CloneNotSupportedException not thrown by this class.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        LogLinearHistogram clone = (LogLinearHistogram) super.clone();
+        clone.rows = new long[2][EXPONENTS][];
+        for (int s = 0; s < 2; s++) {
+            for (int row = 0; row < EXPONENTS; row++) {
+                if (this.rows[s][row] != null) {
+                    clone.rows[s][row] = this.rows[s][row].clone();
+                }
+            }
+        }
+        return clone;
+    }
+
+}
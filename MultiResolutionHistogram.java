@@ -0,0 +1,315 @@
+package org.jfree.data.statistics;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A histogram with a fine base resolution (65536 equal width bins by
+ * default) and a pyramid of coarser levels, each with half the bins of the
+ * level below.  A view of any part of the range can then be served at a
+ * resolution suited to the space it is drawn in, without going back to the
+ * raw data: zooming in reads finer levels, zooming out coarser ones, and
+ * either way the cost is proportional to the number of bins shown.
+ * <p>
+ * A single value is added to every level at once, in O(levels).  After an
+ * array of values, the coarse levels are rebuilt from the base level, in
+ * O(base bins), the first time they are read.
+ * <p>
+ * A {@link HistogramDataset} series can be backed by one of these, see
+ * {@link HistogramDataset#addSeries(Comparable, MultiResolutionHistogram)}
+ * and {@link HistogramDataset#setDisplayRange(double, double, int)}.
+ */
+public class MultiResolutionHistogram implements Cloneable, Serializable {
+
+    /** For serialization. */
+    private static final long serialVersionUID = -7530961426603718525L;
+
+    /** The default number of base bins. */
+    public static final int DEFAULT_BASE_BINS = 65536;
+
+    /** The narrowest a bin may be drawn, in pixels. */
+    public static final double MIN_BIN_PIXELS = 2.0;
+
+    /** The lower bound of the bins. */
+    private double minimum;
+
+    /** The upper bound of the bins. */
+    private double maximum;
+
+    /** The counts, level 0 is the base level. */
+    private long[][] levels;
+
+    /** The total number of observations. */
+    private long total;
+
+    /** A flag that records that the coarse levels are out of date. */
+    private boolean levelsStale;
+
+    /** The number of changes made to the counts. */
+    private transient long changeCount;
+
+    /**
+     * Creates a new histogram with {@link #DEFAULT_BASE_BINS} base bins.
+     *
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     */
+    public MultiResolutionHistogram(double minimum, double maximum) {
+        this(minimum, maximum, DEFAULT_BASE_BINS);
+    }
+
+    /**
+     * Creates a new histogram.
+     *
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     * @param baseBins  the number of base bins (a power of two, at least
+     *     2).
+     */
+    public MultiResolutionHistogram(double minimum, double maximum,
+            int baseBins) {
+        if (!(maximum > minimum)) {
+            throw new IllegalArgumentException(
+                    "Requires 'minimum' < 'maximum'.");
+        }
+        if (baseBins < 2 || Integer.bitCount(baseBins) != 1) {
+            throw new IllegalArgumentException(
+                    "The 'baseBins' must be a power of two.");
+        }
+        this.minimum = minimum;
+        this.maximum = maximum;
+        int levelCount = Integer.numberOfTrailingZeros(baseBins) + 1;
+        this.levels = new long[levelCount][];
+        for (int k = 0; k < levelCount; k++) {
+            this.levels[k] = new long[baseBins >> k];
+        }
+    }
+
+    /**
+     * Returns the lower bound of the bins.
+     *
+     * @return The minimum.
+     */
+    public double getMinimum() {
+        return this.minimum;
+    }
+
+    /**
+     * Returns the upper bound of the bins.
+     *
+     * @return The maximum.
+     */
+    public double getMaximum() {
+        return this.maximum;
+    }
+
+    /**
+     * Returns the total number of observations.
+     *
+     * @return The total.
+     */
+    public long getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Returns a number that changes whenever the counts change.
+     *
+     * @return The change count.
+     */
+    public long getChangeCount() {
+        return this.changeCount;
+    }
+
+    /**
+     * Returns the number of levels, including the base level.
+     *
+     * @return The level count.
+     */
+    public int getLevelCount() {
+        return this.levels.length;
+    }
+
+    /**
+     * Returns the number of bins at a level.
+     *
+     * @param level  the level (0 is the base level).
+     *
+     * @return The bin count.
+     */
+    public int getBinCount(int level) {
+        return this.levels[level].length;
+    }
+
+    /**
+     * Returns the width of the bins at a level.
+     *
+     * @param level  the level (0 is the base level).
+     *
+     * @return The bin width.
+     */
+    public double getBinWidth(int level) {
+        return (this.maximum - this.minimum) / this.levels[level].length;
+    }
+
+    /**
+     * Returns the count of a bin.
+     *
+     * @param level  the level (0 is the base level).
+     * @param bin  the bin index at that level.
+     *
+     * @return The count.
+     */
+    public long getCount(int level, int bin) {
+        if (this.levelsStale && level > 0) {
+            rebuildLevels();
+        }
+        return this.levels[level][bin];
+    }
+
+    /**
+     * Returns the number of observations in the bins before a bin, read
+     * from one bin per level in O(levels).
+     *
+     * @param level  the level (0 is the base level).
+     * @param bin  the bin index at that level.
+     *
+     * @return The count.
+     */
+    public long getCountBefore(int level, int bin) {
+        long result = 0L;
+        while (bin > 0) {
+            if ((bin & 1) != 0) {
+                result += getCount(level, bin - 1);
+            }
+            bin >>= 1;
+            level++;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the finest level whose bins are at least
+     * {@link #MIN_BIN_PIXELS} wide when the range from <code>lower</code>
+     * to <code>upper</code> is drawn across <code>pixelWidth</code> pixels.
+     *
+     * @param lower  the lower bound of the visible range.
+     * @param upper  the upper bound of the visible range.
+     * @param pixelWidth  the width of the visible range in pixels.
+     *
+     * @return The level.
+     */
+    public int getLevel(double lower, double upper, double pixelWidth) {
+        double pixelsPerUnit = pixelWidth / (upper - lower);
+        for (int k = 0; k < this.levels.length; k++) {
+            if (getBinWidth(k) * pixelsPerUnit >= MIN_BIN_PIXELS) {
+                return k;
+            }
+        }
+        return this.levels.length - 1;
+    }
+
+    /**
+     * Adds an observation, using the bin rules of
+     * {@link HistogramDataset#getBinIndex(double, double, double, int)}.
+     *
+     * @param value  the value.
+     */
+    public void update(double value) {
+        int bin = HistogramBinning.binIndex(value, this.minimum, this.maximum,
+                this.levels[0].length);
+        if (this.levelsStale) {
+            // the coarse levels are rebuilt from the base level anyway
+            this.levels[0][bin]++;
+        }
+        else {
+            for (int k = 0; k < this.levels.length; k++) {
+                this.levels[k][bin >> k]++;
+            }
+        }
+        this.total++;
+        this.changeCount++;
+    }
+
+    /**
+     * Adds an array of observations, binned with
+     * {@link HistogramBinning#countBins(double[], double, double, int)}.
+     *
+     * @param values  the values (<code>null</code> not permitted).
+     */
+    public void update(double[] values) {
+        long[] base = this.levels[0];
+        long[] counts = HistogramBinning.countBins(values, this.minimum,
+                this.maximum, base.length);
+        for (int i = 0; i < base.length; i++) {
+            base[i] += counts[i];
+        }
+        this.total += values.length;
+        this.levelsStale = true;
+        this.changeCount++;
+    }
+
+    /**
+     * Recomputes the coarse levels from the base level.
+     */
+    private void rebuildLevels() {
+        for (int k = 1; k < this.levels.length; k++) {
+            long[] fine = this.levels[k - 1];
+            long[] coarse = this.levels[k];
+            for (int i = 0; i < coarse.length; i++) {
+                coarse[i] = fine[2 * i] + fine[2 * i + 1];
+            }
+        }
+        this.levelsStale = false;
+    }
+
+    /**
+     * Tests this histogram for equality with an arbitrary object.
+     *
+     * @param obj  the object (<code>null</code> permitted).
+     *
+     * @return A boolean.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof MultiResolutionHistogram)) {
+            return false;
+        }
+        MultiResolutionHistogram that = (MultiResolutionHistogram) obj;
+        return this.minimum == that.minimum && this.maximum == that.maximum
+                && this.total == that.total
+                && Arrays.equals(this.levels[0], that.levels[0]);
+    }
+
+    /**
+     * Returns a hash code for this histogram.
+     *
+     * @return A hash code.
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.levels[0]);
+    }
+
+    /**
+     * Returns an independent copy of this histogram.
+     *
+     * @return A clone.
+     *
+     * @throws CloneNotSupportedException not thrown by this class.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        MultiResolutionHistogram clone
+                = (MultiResolutionHistogram) super.clone();
+        clone.levels = new long[this.levels.length][];
+        for (int k = 0; k < this.levels.length; k++) {
+            clone.levels[k] = this.levels[k].clone();
+        }
+        return clone;
+    }
+
+}
@@ -0,0 +1,302 @@
+package org.jfree.data.statistics;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A streaming, mergeable sketch of a distribution that answers approximate
+ * quantile queries in bounded memory.  Values are collected in a stack of
+ * buffers; when a buffer is full it is sorted and every other value is
+ * promoted to the next level up, where each value stands for twice as many
+ * observations.  With the default capacity the rank error is typically well
+ * below one percent, while memory grows only with the logarithm of the
+ * number of values.  The minimum, maximum and count are exact.
+ */
+public class QuantileSketch implements Cloneable, Serializable {
+
+    /** For serialization. */
+    private static final long serialVersionUID = 2310986142467364019L;
+
+    /** The default buffer capacity. */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /** The buffer capacity per level (even). */
+    private int capacity;
+
+    /** The buffers, level h values each stand for 2^h observations. */
+    private double[][] levels;
+
+    /** The number of values in each buffer. */
+    private int[] sizes;
+
+    /** The number of values added. */
+    private long count;
+
+    /** The smallest value added. */
+    private double minimum;
+
+    /** The largest value added. */
+    private double maximum;
+
+    /** State for choosing which half of a buffer is promoted. */
+    private long random;
+
+    /**
+     * Creates a new sketch with the default capacity.
+     */
+    public QuantileSketch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new sketch.
+     *
+     * @param capacity  the number of values kept per level (at least 2),
+     *     larger values give more accurate quantiles.
+     */
+    public QuantileSketch(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException(
+                    "The 'capacity' must be at least 2.");
+        }
+        this.capacity = capacity + (capacity & 1);
+        this.levels = new double[1][this.capacity];
+        this.sizes = new int[1];
+        this.minimum = Double.POSITIVE_INFINITY;
+        this.maximum = Double.NEGATIVE_INFINITY;
+        this.random = 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Adds a value to the sketch.  NaN values are ignored.
+     *
+     * @param value  the value.
+     */
+    public void update(double value) {
+        if (value != value) {
+            return;
+        }
+        if (value < this.minimum) {
+            this.minimum = value;
+        }
+        if (value > this.maximum) {
+            this.maximum = value;
+        }
+        this.count++;
+        this.levels[0][this.sizes[0]++] = value;
+        if (this.sizes[0] == this.capacity) {
+            compress();
+        }
+    }
+
+    /**
+     * Adds an array of values to the sketch.  NaN values are ignored.
+     *
+     * @param values  the values (<code>null</code> not permitted).
+     */
+    public void update(double[] values) {
+        for (int i = 0; i < values.length; i++) {
+            update(values[i]);
+        }
+    }
+
+    /**
+     * Adds the content of another sketch to this one.
+     *
+     * @param other  the other sketch (<code>null</code> not permitted).
+     */
+    public void merge(QuantileSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        this.count += other.count;
+        this.minimum = Math.min(this.minimum, other.minimum);
+        this.maximum = Math.max(this.maximum, other.maximum);
+        for (int h = 0; h < other.sizes.length; h++) {
+            int n = other.sizes[h];
+            if (n == 0) {
+                continue;
+            }
+            ensureLevel(h);
+            if (this.sizes[h] + n > this.levels[h].length) {
+                this.levels[h] = Arrays.copyOf(this.levels[h],
+                        this.sizes[h] + n);
+            }
+            System.arraycopy(other.levels[h], 0, this.levels[h],
+                    this.sizes[h], n);
+            this.sizes[h] += n;
+        }
+        compress();
+    }
+
+    /**
+     * Makes sure that level <code>h</code> exists.
+     */
+    private void ensureLevel(int h) {
+        if (h < this.levels.length) {
+            return;
+        }
+        int old = this.levels.length;
+        this.levels = Arrays.copyOf(this.levels, h + 1);
+        this.sizes = Arrays.copyOf(this.sizes, h + 1);
+        for (int i = old; i <= h; i++) {
+            this.levels[i] = new double[this.capacity];
+        }
+    }
+
+    /**
+     * Halves every buffer that reached the capacity, from the bottom up.
+     */
+    private void compress() {
+        for (int h = 0; h < this.levels.length; h++) {
+            if (this.sizes[h] < this.capacity) {
+                continue;
+            }
+            double[] buffer = this.levels[h];
+            int n = this.sizes[h];
+            Arrays.sort(buffer, 0, n);
+            // an odd value out stays on this level
+            int pairs = n / 2;
+            this.random ^= this.random << 13;
+            this.random ^= this.random >>> 7;
+            this.random ^= this.random << 17;
+            int offset = (int) (this.random & 1L);
+            ensureLevel(h + 1);
+            buffer = this.levels[h];
+            double[] up = this.levels[h + 1];
+            if (this.sizes[h + 1] + pairs > up.length) {
+                up = Arrays.copyOf(up, this.sizes[h + 1] + pairs);
+                this.levels[h + 1] = up;
+            }
+            for (int i = 0; i < pairs; i++) {
+                up[this.sizes[h + 1]++] = buffer[2 * i + offset];
+            }
+            if ((n & 1) == 1) {
+                buffer[0] = buffer[n - 1];
+                this.sizes[h] = 1;
+            }
+            else {
+                this.sizes[h] = 0;
+            }
+            if (buffer.length > this.capacity) {
+                this.levels[h] = Arrays.copyOf(buffer, this.capacity);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of values added to the sketch.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Returns the smallest value added to the sketch.
+     *
+     * @return The minimum (positive infinity if the sketch is empty).
+     */
+    public double getMinimum() {
+        return this.minimum;
+    }
+
+    /**
+     * Returns the largest value added to the sketch.
+     *
+     * @return The maximum (negative infinity if the sketch is empty).
+     */
+    public double getMaximum() {
+        return this.maximum;
+    }
+
+    /**
+     * Returns an estimate of the value at a quantile.
+     *
+     * @param q  the quantile (between 0.0 and 1.0).
+     *
+     * @return The value (NaN if the sketch is empty).
+     */
+    public double getQuantile(double q) {
+        return getQuantiles(new double[] {q})[0];
+    }
+
+    /**
+     * Returns estimates of the values at several quantiles, sorting the
+     * retained values only once.
+     *
+     * @param q  the quantiles, each between 0.0 and 1.0 (<code>null</code>
+     *     not permitted).
+     *
+     * @return The values (NaN if the sketch is empty).
+     */
+    public double[] getQuantiles(double[] q) {
+        double[] result = new double[q.length];
+        if (this.count == 0) {
+            Arrays.fill(result, Double.NaN);
+            return result;
+        }
+        int levelCount = this.sizes.length;
+        double[][] runs = new double[levelCount][];
+        int n = 0;
+        for (int h = 0; h < levelCount; h++) {
+            runs[h] = Arrays.copyOf(this.levels[h], this.sizes[h]);
+            Arrays.sort(runs[h]);
+            n += this.sizes[h];
+        }
+        // merge the sorted levels, accumulating the weight of each value
+        double[] sorted = new double[n];
+        long[] cumulative = new long[n];
+        int[] heads = new int[levelCount];
+        long total = 0L;
+        for (int j = 0; j < n; j++) {
+            int best = -1;
+            for (int h = 0; h < levelCount; h++) {
+                if (heads[h] < runs[h].length && (best < 0
+                        || runs[h][heads[h]] < runs[best][heads[best]])) {
+                    best = h;
+                }
+            }
+            sorted[j] = runs[best][heads[best]++];
+            total += 1L << best;
+            cumulative[j] = total;
+        }
+        for (int j = 0; j < q.length; j++) {
+            if (q[j] <= 0.0) {
+                result[j] = this.minimum;
+            }
+            else if (q[j] >= 1.0) {
+                result[j] = this.maximum;
+            }
+            else {
+                long rank = (long) Math.ceil(q[j] * total);
+                int k = Arrays.binarySearch(cumulative, rank);
+                if (k < 0) {
+                    k = -k - 1;
+                }
+                result[j] = sorted[Math.min(k, n - 1)];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of this sketch.
+     *
+     * @return A copy.
+     *
+     * @throws CloneNotSupportedException never.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        QuantileSketch clone = (QuantileSketch) super.clone();
+        clone.levels = new double[this.levels.length][];
+        for (int h = 0; h < this.levels.length; h++) {
+            clone.levels[h] = this.levels[h].clone();
+        }
+        clone.sizes = this.sizes.clone();
+        return clone;
+    }
+
+}
@@ -0,0 +1,68 @@
+package org.jfree.data.statistics;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A binning kernel that computes bin indices with the incubating Vector
+ * API, several values per instruction.  This class needs the
+ * <code>jdk.incubator.vector</code> module (JDK 16 or later, compiled and
+ * run with <code>--add-modules jdk.incubator.vector</code>);
+ * {@link HistogramBinning} loads it by name and falls back to its scalar
+ * loop when the module is missing or the class is absent.  It is therefore
+ * not in the default copy lists; the <code>files_vector</code> lists add it
+ * to a source tree whose build enables the module.
+ * <p>
+ * The indices are exactly those of {@link HistogramBinning#binIndex(double,
+ * double, double, int)}: the arithmetic is the same, and the clamping to
+ * the first and last bins (NaN included) is done with lane masks.  The
+ * counts themselves are incremented one lane at a time, since a histogram
+ * update is a scatter with conflicts.  The indices are handed over as
+ * doubles because the vector double to long conversion is not compiled to
+ * a single instruction on current JDKs and costs more than the scalar cast.
+ */
+final class VectorBinningKernel implements HistogramBinning.Kernel {
+
+    /** The preferred vector shape of the platform. */
+    private static final VectorSpecies<Double> SPECIES
+            = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * Creates a new kernel.  Loading this class fails with a
+     * <code>LinkageError</code> when the vector module is not available.
+     */
+    public VectorBinningKernel() {
+        // touch the species so that a missing module fails here
+        if (SPECIES.length() < 1) {
+            throw new IllegalStateException();
+        }
+    }
+
+    @Override
+    public void count(double[] values, int from, int to, double minimum,
+            double maximum, long[] counts) {
+        int bins = counts.length;
+        double range = maximum - minimum;
+        double last = bins - 1;
+        int lanes = SPECIES.length();
+        double[] indices = new double[lanes];
+        DoubleVector lastBin = DoubleVector.broadcast(SPECIES, last);
+        int upper = from + SPECIES.loopBound(to - from);
+        int i = from;
+        for (; i < upper; i += lanes) {
+            DoubleVector v = DoubleVector.fromArray(SPECIES, values, i);
+            DoubleVector fraction = v.sub(minimum).div(range).max(0.0);
+            DoubleVector index = fraction.mul(bins).min(last);
+            // values not below the maximum, and NaN, go in the last bin
+            lastBin.blend(index, v.lt(maximum)).intoArray(indices, 0);
+            for (int j = 0; j < lanes; j++) {
+                counts[(int) indices[j]]++;
+            }
+        }
+        for (; i < to; i++) {
+            counts[HistogramBinning.binIndex(values[i], minimum, maximum,
+                    bins)]++;
+        }
+    }
+
+}
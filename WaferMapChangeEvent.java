@@ -0,0 +1,49 @@
+package org.jfree.data.general;
+
+/**
+ * A {@link DatasetChangeEvent} sent by a {@link WaferMapDataset} that can
+ * say which chips changed.  Listeners that only need to redraw the changed
+ * chips can use {@link #getChips()}; all others can treat it as an ordinary
+ * dataset change.
+ */
+public class WaferMapChangeEvent extends DatasetChangeEvent {
+
+    /** For serialization. */
+    private static final long serialVersionUID = -3145502873106325717L;
+
+    /** The changed chips as (x, y) pairs, or <code>null</code>. */
+    private int[] chips;
+
+    /**
+     * Creates a new event.
+     *
+     * @param source  the event source.
+     * @param dataset  the dataset that changed.
+     * @param chips  the changed chips as consecutive (x, y) pairs, or
+     *     <code>null</code> if the whole wafer should be considered changed.
+     */
+    public WaferMapChangeEvent(Object source, WaferMapDataset dataset,
+            int[] chips) {
+        super(source, dataset);
+        this.chips = chips;
+    }
+
+    /**
+     * Returns the changed chips as consecutive (x, y) pairs.
+     *
+     * @return The chips, or <code>null</code> if the whole wafer changed.
+     */
+    public int[] getChips() {
+        return this.chips;
+    }
+
+    /**
+     * Returns the number of changed chips.
+     *
+     * @return The chip count, or <code>-1</code> if the whole wafer changed.
+     */
+    public int getChipCount() {
+        return (this.chips == null) ? -1 : this.chips.length / 2;
+    }
+
+}
@@ -0,0 +1,275 @@
+package org.jfree.data.general;
+
+import java.util.Arrays;
+
+/**
+ * Compares two {@link WaferMapDataset} instances with the same geometry, for
+ * example a wafer against a lot reference.  The chip values of both wafers
+ * are read once into primitive arrays and compared with straight array
+ * loops, which gives:
+ * <ul>
+ * <li>a difference dataset holding <code>wafer - reference</code> for every
+ *     chip that has a value on both wafers;</li>
+ * <li>for wafers holding integer bin codes, a bin transition matrix counting
+ *     the chips that went from each reference bin to each wafer bin.</li>
+ * </ul>
+ */
+public class WaferMapComparison {
+
+    /**
+     * The largest range of bin codes for which a transition matrix is
+     * built.
+     */
+    private static final int MAX_BIN_SPAN = 1024;
+
+    /** The reference wafer. */
+    private WaferMapDataset reference;
+
+    /** The compared wafer. */
+    private WaferMapDataset wafer;
+
+    /** wafer - reference per chip, NaN unless both chips have a value. */
+    private double[] delta;
+
+    /** The difference dataset, created on first use. */
+    private WaferMapDataset difference;
+
+    /** The number of chips with a value on both wafers. */
+    private int comparedCount;
+
+    /** The number of compared chips whose value changed. */
+    private int changedCount;
+
+    /** The lowest bin code, or 0 if there is no transition matrix. */
+    private int minBin;
+
+    /** The number of bin codes covered by the matrix. */
+    private int binSpan;
+
+    /** Transition counts, index (from - minBin) * binSpan + (to - minBin). */
+    private long[] transitions;
+
+    /**
+     * Compares two wafers.
+     *
+     * @param reference  the reference wafer (<code>null</code> not
+     *     permitted).
+     * @param wafer  the wafer to compare (<code>null</code> not permitted).
+     *
+     * @throws IllegalArgumentException if the wafers do not have the same
+     *     geometry.
+     */
+    public WaferMapComparison(WaferMapDataset reference,
+            WaferMapDataset wafer) {
+        if (reference == null || wafer == null) {
+            throw new IllegalArgumentException("Null dataset argument.");
+        }
+        if (reference.getMaxChipX() != wafer.getMaxChipX()
+                || reference.getMaxChipY() != wafer.getMaxChipY()
+                || reference.getXOffset() != wafer.getXOffset()
+                || reference.getYOffset() != wafer.getYOffset()) {
+            throw new IllegalArgumentException(
+                    "The wafers do not have the same geometry.");
+        }
+        this.reference = reference;
+        this.wafer = wafer;
+        double[] a = reference.getChipValues();
+        double[] b = wafer.getChipValues();
+
+        // NaN propagates, so chips missing on either wafer stay NaN; the
+        // same pass finds out whether both wafers hold integer bin codes,
+        // and their range
+        int n = a.length;
+        this.delta = new double[n];
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        boolean integral = true;
+        for (int i = 0; i < n; i++) {
+            double from = a[i];
+            double to = b[i];
+            double d = to - from;
+            this.delta[i] = d;
+            if (d != d) {
+                continue;
+            }
+            this.comparedCount++;
+            if (d != 0.0) {
+                this.changedCount++;
+            }
+            min = Math.min(min, Math.min(from, to));
+            max = Math.max(max, Math.max(from, to));
+            integral &= (from == Math.rint(from)) & (to == Math.rint(to));
+        }
+        if (this.comparedCount > 0 && integral
+                && min >= Integer.MIN_VALUE && max <= Integer.MAX_VALUE
+                && max - min < MAX_BIN_SPAN) {
+            this.minBin = (int) min;
+            this.binSpan = (int) (max - min) + 1;
+            this.transitions = new long[this.binSpan * this.binSpan];
+            for (int i = 0; i < n; i++) {
+                if (this.delta[i] != this.delta[i]) {
+                    continue;
+                }
+                int from = (int) a[i] - this.minBin;
+                int to = (int) b[i] - this.minBin;
+                this.transitions[from * this.binSpan + to]++;
+            }
+        }
+    }
+
+    /**
+     * Returns the reference wafer.
+     *
+     * @return The reference wafer.
+     */
+    public WaferMapDataset getReference() {
+        return this.reference;
+    }
+
+    /**
+     * Returns the compared wafer.
+     *
+     * @return The compared wafer.
+     */
+    public WaferMapDataset getWafer() {
+        return this.wafer;
+    }
+
+    /**
+     * Returns the number of chips that have a value on both wafers.
+     *
+     * @return The chip count.
+     */
+    public int getComparedCount() {
+        return this.comparedCount;
+    }
+
+    /**
+     * Returns the number of compared chips whose value is different on the
+     * two wafers.
+     *
+     * @return The chip count.
+     */
+    public int getChangedCount() {
+        return this.changedCount;
+    }
+
+    /**
+     * Returns the difference <code>wafer - reference</code> per chip as a
+     * primitive array, laid out as described in
+     * {@link WaferMapDataset#getChipValues()}.
+     *
+     * @return A copy of the differences (NaN where a chip is missing on
+     *     either wafer).
+     */
+    public double[] getDeltaValues() {
+        return this.delta.clone();
+    }
+
+    /**
+     * Returns a dataset holding <code>wafer - reference</code> for every
+     * chip that has a value on both wafers.
+     *
+     * @return The difference dataset.
+     */
+    public WaferMapDataset getDifference() {
+        if (this.difference == null) {
+            int xOffset = this.wafer.getXOffset();
+            int yOffset = this.wafer.getYOffset();
+            WaferMapDataset result = new WaferMapDataset(
+                    this.wafer.getMaxChipX() - xOffset,
+                    this.wafer.getMaxChipY() - yOffset,
+                    Double.valueOf(this.wafer.getChipSpace()),
+                    -xOffset, -yOffset);
+            int height = this.wafer.getMaxChipY() + 1;
+            for (int i = 0; i < this.delta.length; i++) {
+                double d = this.delta[i];
+                if (d == d) {
+                    result.setValue(Double.valueOf(d),
+                            Integer.valueOf(i / height - xOffset),
+                            Integer.valueOf(i % height - yOffset));
+                }
+            }
+            this.difference = result;
+        }
+        return this.difference;
+    }
+
+    /**
+     * Returns <code>true</code> if both wafers hold integer bin codes so
+     * that the bin transitions are available.
+     *
+     * @return A boolean.
+     */
+    public boolean hasBinTransitions() {
+        return this.transitions != null;
+    }
+
+    /**
+     * Returns the bin codes covered by the transition matrix, in ascending
+     * order.
+     *
+     * @return The bin codes (empty if there are no bin transitions).
+     */
+    public int[] getBinCodes() {
+        int[] result = new int[this.binSpan];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.minBin + i;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of chips in bin <code>fromBin</code> on the
+     * reference wafer and bin <code>toBin</code> on the compared wafer.
+     *
+     * @param fromBin  the reference bin code.
+     * @param toBin  the compared bin code.
+     *
+     * @return The chip count.
+     */
+    public long getTransitionCount(int fromBin, int toBin) {
+        int from = fromBin - this.minBin;
+        int to = toBin - this.minBin;
+        if (this.transitions == null || from < 0 || from >= this.binSpan
+                || to < 0 || to >= this.binSpan) {
+            return 0L;
+        }
+        return this.transitions[from * this.binSpan + to];
+    }
+
+    /**
+     * Returns the bin transition matrix.  Row <code>i</code> and column
+     * <code>j</code> count the chips going from bin
+     * <code>getBinCodes()[i]</code> to bin <code>getBinCodes()[j]</code>.
+     *
+     * @return A new matrix (empty if there are no bin transitions).
+     */
+    public long[][] getTransitionMatrix() {
+        long[][] result = new long[this.binSpan][];
+        for (int i = 0; i < this.binSpan; i++) {
+            result[i] = Arrays.copyOfRange(this.transitions, i * this.binSpan,
+                    (i + 1) * this.binSpan);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of chips that were in the pass bin on the reference
+     * wafer and in any other bin on the compared wafer.
+     *
+     * @param passBin  the pass bin code.
+     *
+     * @return The number of new fails.
+     */
+    public long getNewFailCount(int passBin) {
+        long result = 0L;
+        for (int to = this.minBin; to < this.minBin + this.binSpan; to++) {
+            if (to != passBin) {
+                result += getTransitionCount(passBin, to);
+            }
+        }
+        return result;
+    }
+
+}
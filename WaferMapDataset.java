@@ -43,6 +43,7 @@
 
 package org.jfree.data.general;
 
+import java.util.Arrays;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -84,6 +85,21 @@ public class WaferMapDataset extends AbstractDataset {
     /** default chip spacing */
     private static final double DEFAULT_CHIP_SPACE = 1d;
 
+    /** chips set since the last chip change event, as (x, y) pairs */
+    private transient int[] changedChips;
+
+    /** number of entries used in changedChips */
+    private transient int changedChipsLength;
+
+    /** set when the changed chips can no longer be listed individually */
+    private transient boolean changedChipsOverflow = true;
+
+    /**
+     * The maximum number of changed chips listed in a chip change event,
+     * larger updates are reported as a change of the whole wafer.
+     */
+    private static final int MAX_CHANGED_CHIPS = 4096;
+
     /**
      * Creates a new dataset using the default chipspace.
      *
@@ -158,6 +174,72 @@ public class WaferMapDataset extends AbstractDataset {
         if (isMinValue(value)) {
             this.minValue = (Double) value;
         }
+        addChangedChip(chipx, chipy);
+    }
+
+    /**
+     * Removes the value for a chip.  The minimum and maximum values are not
+     * recalculated.
+     *
+     * @param chipx  the x-index.
+     * @param chipy  the y-index.
+     */
+    public void removeValue(Comparable chipx, Comparable chipy) {
+        if (getChipValue(chipx, chipy) == null) {
+            return;
+        }
+        this.data.removeValue(chipx, chipy);
+        addChangedChip(chipx, chipy);
+    }
+
+    /**
+     * Records a chip for the next {@link #fireChipsChanged()} call.
+     *
+     * @param chipx  the x-index.
+     * @param chipy  the y-index.
+     */
+    private void addChangedChip(Comparable chipx, Comparable chipy) {
+        if (this.changedChipsOverflow) {
+            return;
+        }
+        if (!(chipx instanceof Integer) || !(chipy instanceof Integer)
+                || this.changedChipsLength >= MAX_CHANGED_CHIPS * 2) {
+            this.changedChipsOverflow = true;
+            return;
+        }
+        if (this.changedChips == null) {
+            this.changedChips = new int[64];
+        }
+        else if (this.changedChipsLength == this.changedChips.length) {
+            this.changedChips = Arrays.copyOf(this.changedChips,
+                    this.changedChipsLength * 2);
+        }
+        this.changedChips[this.changedChipsLength++] = (Integer) chipx;
+        this.changedChips[this.changedChipsLength++] = (Integer) chipy;
+    }
+
+    /**
+     * Sends a {@link WaferMapChangeEvent} listing the chips set since the
+     * last call to all registered listeners.  Use this after appending a few
+     * chips to a live wafer so that the plot can redraw just those chips.
+     * Chips set before the first call (or too many chips at once) are
+     * reported as a change of the whole wafer.
+     * <p>
+     * Like the other changes to a charted dataset, the values should be set
+     * and this method called on the event dispatch thread.  A wafer read on
+     * another thread can be handed over in batches with
+     * <code>SwingUtilities.invokeLater()</code>, each task setting the values
+     * of a batch and then calling this method.
+     */
+    public void fireChipsChanged() {
+        int[] chips = null;
+        if (!this.changedChipsOverflow) {
+            chips = (this.changedChips == null) ? new int[0]
+                    : Arrays.copyOf(this.changedChips, this.changedChipsLength);
+        }
+        this.changedChipsLength = 0;
+        this.changedChipsOverflow = false;
+        notifyListeners(new WaferMapChangeEvent(this, this, chips));
     }
 
     /**
@@ -188,6 +270,58 @@ public class WaferMapDataset extends AbstractDataset {
         return unique;
     }
 
+    /**
+     * Returns the chip values as a primitive array with one entry per chip
+     * position, <code>Double.NaN</code> where a chip has no value.  The value
+     * for chip (x, y) is at index
+     * <code>(x + getXOffset()) * (getMaxChipY() + 1) + (y + getYOffset())</code>.
+     * Chips with non-integer keys or keys outside the wafer are left out.
+     *
+     * @return A new array.
+     */
+    public double[] getChipValues() {
+        int height = this.maxChipY + 1;
+        double[] result = new double[(this.maxChipX + 1) * height];
+        Arrays.fill(result, Double.NaN);
+        int[] rows = new int[this.data.getRowCount()];
+        for (int r = 0; r < rows.length; r++) {
+            rows[r] = getChipIndex(this.data.getRowKey(r), this.xOffset,
+                    this.maxChipX);
+        }
+        int[] columns = new int[this.data.getColumnCount()];
+        for (int c = 0; c < columns.length; c++) {
+            columns[c] = getChipIndex(this.data.getColumnKey(c), this.yOffset,
+                    this.maxChipY);
+        }
+        for (int r = 0; r < rows.length; r++) {
+            if (rows[r] < 0) {
+                continue;
+            }
+            for (int c = 0; c < columns.length; c++) {
+                if (columns[c] < 0) {
+                    continue;
+                }
+                Number value = this.data.getValue(r, c);
+                if (value != null) {
+                    result[rows[r] * height + columns[c]] = value.doubleValue();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Converts a chip key to a zero-based position, or -1 if the key cannot
+     * be placed on the wafer.
+     */
+    private static int getChipIndex(Comparable key, int offset, int max) {
+        if (!(key instanceof Integer)) {
+            return -1;
+        }
+        int index = ((Integer) key).intValue() + offset;
+        return (index < 0 || index > max) ? -1 : index;
+    }
+
     /**
      * Returns the data value for a chip.
      *
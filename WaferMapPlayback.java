@@ -0,0 +1,281 @@
+package org.jfree.data.general;
+
+import java.io.Serializable;
+
+/**
+ * Replays the order in which the chips of a wafer were tested.  The
+ * playback owns a time-ordered sequence of (x, y, value) steps and a cursor
+ * giving the number of steps applied to a {@link WaferMapDataset}.  Moving
+ * the cursor only writes the chips that differ between the two frames and
+ * then calls {@link WaferMapDataset#fireChipsChanged()}, so a
+ * {@link org.jfree.chart.plot.WaferMapPlot} in a
+ * {@link org.jfree.chart.ChartPanel} only redraws those chips.
+ * <P>
+ * Stepping backwards uses the value each step overwrote.  Long jumps start
+ * from the nearest keyframe, a snapshot of the whole wafer taken every
+ * <code>keyframeInterval</code> steps, and write only the chips that differ
+ * from the frame currently shown.
+ */
+public class WaferMapPlayback implements Serializable {
+
+    /** For serialization. */
+    private static final long serialVersionUID = 5406785212380522651L;
+
+    /** The maximum number of keyframes kept by default. */
+    private static final int DEFAULT_KEYFRAME_COUNT = 32;
+
+    /** The dataset being played back into. */
+    private WaferMapDataset dataset;
+
+    /** The chip x-index for each step. */
+    private int[] chipX;
+
+    /** The chip y-index for each step. */
+    private int[] chipY;
+
+    /** The chip value for each step. */
+    private double[] values;
+
+    /** The value each step overwrote (NaN if the chip had no value). */
+    private double[] previousValues;
+
+    /** The number of steps between keyframes. */
+    private int keyframeInterval;
+
+    /** Keyframe k holds the wafer after k * keyframeInterval steps. */
+    private double[][] keyframes;
+
+    /** The wafer as currently shown, NaN for chips without a value. */
+    private double[] frame;
+
+    /** The lowest chip x-index. */
+    private int minX;
+
+    /** The lowest chip y-index. */
+    private int minY;
+
+    /** The number of chip rows in the frame arrays. */
+    private int height;
+
+    /** The number of steps applied to the dataset. */
+    private int cursor;
+
+    /**
+     * Creates a new playback with a default keyframe interval.  The current
+     * content of the dataset is used as the frame before the first step.
+     *
+     * @param dataset  the dataset (<code>null</code> not permitted).
+     * @param chipX  the chip x-indices in test order (<code>null</code> not
+     *     permitted).
+     * @param chipY  the chip y-indices in test order (<code>null</code> not
+     *     permitted).
+     * @param values  the chip values in test order (<code>null</code> not
+     *     permitted).
+     */
+    public WaferMapPlayback(WaferMapDataset dataset, int[] chipX,
+            int[] chipY, double[] values) {
+        this(dataset, chipX, chipY, values, Math.max(256,
+                values.length / DEFAULT_KEYFRAME_COUNT + 1));
+    }
+
+    /**
+     * Creates a new playback.  The current content of the dataset is used as
+     * the frame before the first step.
+     *
+     * @param dataset  the dataset (<code>null</code> not permitted).
+     * @param chipX  the chip x-indices in test order (<code>null</code> not
+     *     permitted).
+     * @param chipY  the chip y-indices in test order (<code>null</code> not
+     *     permitted).
+     * @param values  the chip values in test order (<code>null</code> not
+     *     permitted).
+     * @param keyframeInterval  the number of steps between keyframes (must
+     *     be at least 1).
+     */
+    public WaferMapPlayback(WaferMapDataset dataset, int[] chipX,
+            int[] chipY, double[] values, int keyframeInterval) {
+        if (dataset == null) {
+            throw new IllegalArgumentException("Null 'dataset' argument.");
+        }
+        if (chipX == null || chipY == null || values == null) {
+            throw new IllegalArgumentException("Null sequence argument.");
+        }
+        if (chipX.length != values.length || chipY.length != values.length) {
+            throw new IllegalArgumentException(
+                    "The chip and value arrays must have the same length.");
+        }
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException(
+                    "The 'keyframeInterval' must be at least 1.");
+        }
+        this.dataset = dataset;
+        this.chipX = chipX.clone();
+        this.chipY = chipY.clone();
+        this.values = values.clone();
+        this.keyframeInterval = keyframeInterval;
+        this.minX = -dataset.getXOffset();
+        this.minY = -dataset.getYOffset();
+        this.height = dataset.getMaxChipY() + 1;
+        this.frame = dataset.getChipValues();
+        // walk the sequence once to find what each step overwrites and to
+        // take the keyframes
+        this.previousValues = new double[values.length];
+        this.keyframes = new double[values.length / keyframeInterval + 1][];
+        double[] state = this.frame.clone();
+        for (int i = 0; i < values.length; i++) {
+            if (i % keyframeInterval == 0) {
+                this.keyframes[i / keyframeInterval] = state.clone();
+            }
+            int index = getFrameIndex(this.chipX[i], this.chipY[i]);
+            this.previousValues[i] = state[index];
+            state[index] = values[i];
+        }
+        if (values.length % keyframeInterval == 0) {
+            this.keyframes[values.length / keyframeInterval] = state;
+        }
+        this.cursor = 0;
+    }
+
+    /**
+     * Returns the index of a chip in the frame arrays.
+     *
+     * @param x  the chip x-index.
+     * @param y  the chip y-index.
+     *
+     * @return The index.
+     */
+    private int getFrameIndex(int x, int y) {
+        int fx = x - this.minX;
+        int fy = y - this.minY;
+        if (fx < 0 || fy < 0 || fy >= this.height
+                || fx * this.height + fy >= this.frame.length) {
+            throw new IllegalArgumentException("Chip (" + x + "," + y
+                    + ") lies outside the wafer.");
+        }
+        return fx * this.height + fy;
+    }
+
+    /**
+     * Returns the dataset that the playback writes to.
+     *
+     * @return The dataset.
+     */
+    public WaferMapDataset getDataset() {
+        return this.dataset;
+    }
+
+    /**
+     * Returns the number of steps in the sequence.
+     *
+     * @return The step count.
+     */
+    public int getStepCount() {
+        return this.values.length;
+    }
+
+    /**
+     * Returns the number of steps currently applied to the dataset.
+     *
+     * @return The cursor (between <code>0</code> and
+     *     <code>getStepCount()</code>).
+     */
+    public int getCursor() {
+        return this.cursor;
+    }
+
+    /**
+     * Returns the number of steps between keyframes.
+     *
+     * @return The keyframe interval.
+     */
+    public int getKeyframeInterval() {
+        return this.keyframeInterval;
+    }
+
+    /**
+     * Moves the cursor by the given number of steps (negative to go back),
+     * stopping at either end of the sequence.
+     *
+     * @param steps  the number of steps.
+     *
+     * @return <code>true</code> if the cursor moved.
+     */
+    public boolean advance(int steps) {
+        long target = (long) this.cursor + steps;
+        target = Math.max(0, Math.min(this.values.length, target));
+        if (target == this.cursor) {
+            return false;
+        }
+        seek((int) target);
+        return true;
+    }
+
+    /**
+     * Moves the cursor to the given step and sends a single chip change
+     * event for the chips that differ between the two frames.
+     *
+     * @param target  the new cursor (between <code>0</code> and
+     *     <code>getStepCount()</code>).
+     */
+    public void seek(int target) {
+        if (target < 0 || target > this.values.length) {
+            throw new IllegalArgumentException("Cursor " + target
+                    + " outside the range 0 - " + this.values.length + ".");
+        }
+        if (target == this.cursor) {
+            return;
+        }
+        int keyframe = target / this.keyframeInterval;
+        if (Math.abs(target - this.cursor) <= this.keyframeInterval) {
+            if (target > this.cursor) {
+                for (int i = this.cursor; i < target; i++) {
+                    setChip(getFrameIndex(this.chipX[i], this.chipY[i]),
+                            this.values[i]);
+                }
+            }
+            else {
+                for (int i = this.cursor - 1; i >= target; i--) {
+                    setChip(getFrameIndex(this.chipX[i], this.chipY[i]),
+                            this.previousValues[i]);
+                }
+            }
+        }
+        else {
+            double[] snapshot = this.keyframes[keyframe];
+            for (int i = 0; i < snapshot.length; i++) {
+                setChip(i, snapshot[i]);
+            }
+            for (int i = keyframe * this.keyframeInterval; i < target; i++) {
+                setChip(getFrameIndex(this.chipX[i], this.chipY[i]),
+                        this.values[i]);
+            }
+        }
+        this.cursor = target;
+        this.dataset.fireChipsChanged();
+    }
+
+    /**
+     * Writes a chip value to the dataset if it differs from the frame
+     * currently shown.
+     *
+     * @param index  the frame index.
+     * @param value  the value (NaN removes the chip value).
+     */
+    private void setChip(int index, double value) {
+        double current = this.frame[index];
+        if (current == value || (Double.isNaN(current)
+                && Double.isNaN(value))) {
+            return;
+        }
+        this.frame[index] = value;
+        Integer x = Integer.valueOf(index / this.height + this.minX);
+        Integer y = Integer.valueOf(index % this.height + this.minY);
+        if (Double.isNaN(value)) {
+            this.dataset.removeValue(x, y);
+        }
+        else {
+            this.dataset.setValue(Double.valueOf(value), x, y);
+        }
+    }
+
+}
@@ -2,13 +2,18 @@ package org.jfree.chart.plot;
 
 import java.awt.BasicStroke;
 import org.jfree.chart.event.RendererChangeEvent;
+import org.jfree.chart.event.ChartChangeEventType;
+import org.jfree.chart.event.PlotChangeEvent;
 import org.jfree.chart.LegendItemCollection;
 import java.awt.Polygon;
 import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
 import java.awt.Font;
 import java.awt.Color;
 import java.awt.GraphicsEnvironment;
 import java.awt.Shape;
+import java.awt.Paint;
+import org.jfree.chart.JFreeChart;
 import org.jfree.ui.RectangleInsets;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
@@ -16,6 +21,7 @@ import java.awt.Graphics2D;
 import org.jfree.data.general.Dataset;
 import org.jfree.data.general.DatasetChangeEvent;
 import org.jfree.data.general.DatasetChangeListener;
+import org.jfree.data.general.WaferMapChangeEvent;
 import java.text.DecimalFormat;
 import org.jfree.chart.renderer.WaferMapRenderer;
 import org.jfree.data.general.WaferMapDataset;
@@ -23,7 +29,7 @@ import java.awt.Stroke;
 import java.io.Serializable;
 import org.jfree.chart.event.RendererChangeListener;
 
-public class WaferMapPlot extends Plot implements RendererChangeListener, Cloneable, Serializable, Zoomable
+public class WaferMapPlot extends Plot implements RendererChangeListener, Cloneable, Serializable, Zoomable, IncrementalPlot
 {
     private static final long serialVersionUID = 4668320403707308156L;
     public static final Stroke DEFAULT_GRIDLINE_STROKE;
@@ -31,6 +37,18 @@ public class WaferMapPlot extends Plot implements RendererChangeListener, Clonea
     private WaferMapDataset dataset;
     private WaferMapRenderer renderer;
     private static DecimalFormat df;
+    protected static final byte CHIP_OUTSIDE = 0;
+    protected static final byte CHIP_PARTIAL = 1;
+    protected static final byte CHIP_INSIDE = 2;
+    private transient byte[] chipMask;
+    private transient Rectangle2D chipMaskArea;
+    private transient int chipMaskXChips;
+    private transient int chipMaskYChips;
+    private transient double chipMaskSpace;
+    private boolean mergeChipRuns;
+    private transient PlotRenderingInfo lastDrawInfo;
+    private transient Rectangle2D lastChipArea;
+    private transient Font lastChipFont;
     
     public WaferMapPlot() {
         this(null);
@@ -94,6 +112,8 @@ public class WaferMapPlot extends Plot implements RendererChangeListener, Clonea
         insets.trim(area);
         this.drawChipGrid(g2, area, 100.0);
         this.drawWaferEdge(g2, area, 100.0);
+        this.lastDrawInfo = info;
+        this.lastChipArea = (info == null) ? null : (Rectangle2D)area.clone();
     }
     
     protected int getXChips() {
@@ -159,10 +179,6 @@ public class WaferMapPlot extends Plot implements RendererChangeListener, Clonea
     
     protected void drawChipGrid(final Graphics2D g2, final Rectangle2D plotArea, final double scalePct) {
         final Shape savedClip = g2.getClip();
-        if (!this.renderer.isShowSurroundingGrid()) {
-            g2.setClip(this.getWaferEdge(plotArea));
-        }
-        final Rectangle2D chip = new Rectangle2D.Double();
         int xchips = 35;
         int ychips = 20;
         double space = 1.0;
@@ -173,6 +189,56 @@ public class WaferMapPlot extends Plot implements RendererChangeListener, Clonea
         }
         final double[] xValues = this.getChipXValues(plotArea, xchips, space);
         final double[] yValues = this.getChipYValues(plotArea, ychips, space);
+        //final Font[] fonts = GraphicsEnvironment.getLocalGraphicsEnvironment().getAllFonts();
+        g2.setFont(g2.getFont().deriveFont(0, 8.0f));
+        this.lastChipFont = g2.getFont();
+        if (this.isMergedOutput(g2)) {
+            // vector formats clip cheaply, but pay for every element drawn
+            Ellipse2D waferEdge = null;
+            byte[] mask = null;
+            if (!this.renderer.isShowSurroundingGrid()) {
+                waferEdge = this.getWaferEdge(plotArea);
+                mask = this.getChipMask(waferEdge, plotArea, xValues, yValues, xchips, ychips, space);
+                g2.setClip(waferEdge);
+            }
+            this.drawMergedChips(g2, xValues, yValues, xchips, ychips, space, mask);
+        }
+        else if (this.renderer.isShowSurroundingGrid()) {
+            this.drawChips(g2, xValues, yValues, xchips, ychips, space, null, CHIP_INSIDE);
+        }
+        else {
+            // dies fully inside the wafer edge are drawn unclipped, only the
+            // ones crossing the edge pay for the curved clip
+            final Ellipse2D waferEdge = this.getWaferEdge(plotArea);
+            final byte[] mask = this.getChipMask(waferEdge, plotArea, xValues, yValues, xchips, ychips, space);
+            this.drawChips(g2, xValues, yValues, xchips, ychips, space, mask, CHIP_INSIDE);
+            g2.setClip(waferEdge);
+            this.drawChips(g2, xValues, yValues, xchips, ychips, space, mask, CHIP_PARTIAL);
+        }
+        g2.setClip(savedClip);
+    }
+    
+    private void drawChips(final Graphics2D g2, final double[] xValues, final double[] yValues, final int xchips, final int ychips, final double space, final byte[] mask, final byte include) {
+        final Rectangle2D chip = new Rectangle2D.Double();
+        final boolean printChipValue = this.renderer.isPrintChipValue();
+        for (int x = 1; x <= xchips; ++x) {
+            for (int y = 1; y <= ychips; ++y) {
+                if (mask != null && mask[(x - 1) * ychips + (y - 1)] != include) {
+                    continue;
+                }
+                this.drawChip(g2, chip, x, y, xValues, yValues, ychips, space, printChipValue);
+            }
+        }
+    }
+    
+    /**
+     * Draws the chips with as few drawing operations as possible: each run
+     * of horizontally adjacent chips with the same paint is filled as one
+     * rectangle, and all chip outlines are drawn as a single path.  This
+     * keeps SVG and PDF output proportional to the number of colour regions
+     * rather than the number of chips.
+     */
+    private void drawMergedChips(final Graphics2D g2, final double[] xValues, final double[] yValues, final int xchips, final int ychips, final double space, final byte[] mask) {
         final double startX = xValues[1];
         final double chipWidth = xValues[0];
         final double startY = yValues[1];
@@ -180,30 +246,257 @@ public class WaferMapPlot extends Plot implements RendererChangeListener, Clonea
         final int xOffset = this.getXOffset();
         final int yOffset = this.getYOffset();
         final boolean printChipValue = this.renderer.isPrintChipValue();
-        //final Font[] fonts = GraphicsEnvironment.getLocalGraphicsEnvironment().getAllFonts();
-        g2.setFont(g2.getFont().deriveFont(0, 8.0f));
-        final float printXOffset = (float)Math.max(1.0, chipWidth * 0.35);
-        final float printYOffset = (float)Math.max(1.0, chipHeight * 0.3);
-        for (int x = 1; x <= xchips; ++x) {
-            final double upperLeftX = startX - chipWidth + chipWidth * x + space * (x - 1);
-            for (int y = 1; y <= ychips; ++y) {
-                final double upperLeftY = startY - chipHeight + chipHeight * y + space * (y - 1);
+        final Path2D grid = new Path2D.Double();
+        // with gaps between the chips a run is filled as one path of chip
+        // rectangles, so that vector output leaves the gaps empty as the
+        // screen does
+        final boolean gaps = space > 0.0;
+        final Path2D runPath = new Path2D.Double();
+        final Rectangle2D run = new Rectangle2D.Double();
+        final Rectangle2D chip = new Rectangle2D.Double();
+        for (int y = 1; y <= ychips; ++y) {
+            final double upperLeftY = startY - chipHeight + chipHeight * y + space * (y - 1);
+            Paint runPaint = null;
+            double runStartX = 0.0;
+            double runEndX = 0.0;
+            for (int x = 1; x <= xchips + 1; ++x) {
+                Paint paint = null;
+                double upperLeftX = 0.0;
+                Number value = null;
+                if (x <= xchips && (mask == null || mask[(x - 1) * ychips + (y - 1)] != CHIP_OUTSIDE)) {
+                    upperLeftX = startX - chipWidth + chipWidth * x + space * (x - 1);
+                    value = this.getChipValueFromDisplay(x - 1 - xOffset, ychips - y - 0 - yOffset);
+                    paint = (value == null) ? Color.white : this.renderer.getChipColor(value);
+                }
+                if (runPaint != null && (paint == null || !paint.equals(runPaint))) {
+                    g2.setPaint(runPaint);
+                    if (gaps) {
+                        g2.fill(runPath);
+                        runPath.reset();
+                    }
+                    else {
+                        run.setFrame(runStartX, upperLeftY, runEndX - runStartX, chipHeight);
+                        g2.fill(run);
+                    }
+                    runPaint = null;
+                }
+                if (paint == null) {
+                    continue;
+                }
+                if (runPaint == null) {
+                    runPaint = paint;
+                    runStartX = upperLeftX;
+                }
+                runEndX = upperLeftX + chipWidth;
                 chip.setFrame(upperLeftX, upperLeftY, chipWidth, chipHeight);
-                g2.setColor(Color.white);
-                final Number value = this.getChipValueFromDisplay(x - 1 - xOffset, ychips - y - 0 - yOffset);
-                if (value != null) {
-                    g2.setPaint(this.renderer.getChipColor(value));
+                grid.append(chip, false);
+                if (gaps) {
+                    runPath.append(chip, false);
                 }
-                g2.fill(chip);
-                if (printChipValue && value != null) {
-                    g2.setColor(Color.black);
-                    g2.drawString(Integer.toString(value.intValue()), (float)(printXOffset + upperLeftX), (float)(upperLeftY + chipHeight - printYOffset));
+            }
+        }
+        // outlines first, so that they do not cover the chip values
+        g2.setColor(Color.lightGray);
+        g2.draw(grid);
+        if (printChipValue) {
+            final float printXOffset = (float)Math.max(1.0, chipWidth * 0.35);
+            final float printYOffset = (float)Math.max(1.0, chipHeight * 0.3);
+            g2.setColor(Color.black);
+            for (int x = 1; x <= xchips; ++x) {
+                final double upperLeftX = startX - chipWidth + chipWidth * x + space * (x - 1);
+                for (int y = 1; y <= ychips; ++y) {
+                    if (mask != null && mask[(x - 1) * ychips + (y - 1)] == CHIP_OUTSIDE) {
+                        continue;
+                    }
+                    final Number value = this.getChipValueFromDisplay(x - 1 - xOffset, ychips - y - 0 - yOffset);
+                    if (value != null) {
+                        final double upperLeftY = startY - chipHeight + chipHeight * y + space * (y - 1);
+                        g2.drawString(Integer.toString(value.intValue()), (float)(printXOffset + upperLeftX), (float)(upperLeftY + chipHeight - printYOffset));
+                    }
                 }
-                g2.setColor(Color.lightGray);
-                g2.draw(chip);
             }
         }
+    }
+    
+    /**
+     * Returns <code>true</code> if the chips should be drawn with merged
+     * runs, either because {@link #isMergeChipRuns()} is set or because the
+     * target is a vector format.  The {@link org.jfree.chart.ChartPanel} SVG
+     * and PDF export paths mark their graphics with
+     * {@link JFreeChart#KEY_SUPPRESS_SHADOW_GENERATION}.
+     */
+    protected boolean isMergedOutput(final Graphics2D g2) {
+        return this.mergeChipRuns || Boolean.TRUE.equals(g2.getRenderingHint(JFreeChart.KEY_SUPPRESS_SHADOW_GENERATION));
+    }
+    
+    public boolean isMergeChipRuns() {
+        return this.mergeChipRuns;
+    }
+    
+    /**
+     * Sets the flag that forces chips to be drawn as merged colour runs,
+     * as is done automatically for SVG and PDF export.
+     */
+    public void setMergeChipRuns(final boolean mergeChipRuns) {
+        this.mergeChipRuns = mergeChipRuns;
+        this.fireChangeEvent();
+    }
+    
+    private void drawChip(final Graphics2D g2, final Rectangle2D chip, final int x, final int y, final double[] xValues, final double[] yValues, final int ychips, final double space, final boolean printChipValue) {
+        final double startX = xValues[1];
+        final double chipWidth = xValues[0];
+        final double startY = yValues[1];
+        final double chipHeight = yValues[0];
+        final double upperLeftX = startX - chipWidth + chipWidth * x + space * (x - 1);
+        final double upperLeftY = startY - chipHeight + chipHeight * y + space * (y - 1);
+        chip.setFrame(upperLeftX, upperLeftY, chipWidth, chipHeight);
+        g2.setColor(Color.white);
+        final Number value = this.getChipValueFromDisplay(x - 1 - this.getXOffset(), ychips - y - 0 - this.getYOffset());
+        if (value != null) {
+            g2.setPaint(this.renderer.getChipColor(value));
+        }
+        g2.fill(chip);
+        if (printChipValue && value != null) {
+            final float printXOffset = (float)Math.max(1.0, chipWidth * 0.35);
+            final float printYOffset = (float)Math.max(1.0, chipHeight * 0.3);
+            g2.setColor(Color.black);
+            g2.drawString(Integer.toString(value.intValue()), (float)(printXOffset + upperLeftX), (float)(upperLeftY + chipHeight - printYOffset));
+        }
+        g2.setColor(Color.lightGray);
+        g2.draw(chip);
+    }
+    
+    /**
+     * Redraws the chips listed by the {@link WaferMapChangeEvent} behind a
+     * plot change event, using the geometry of the last full draw.  Axes,
+     * legend and the wafer edge are left as they are, apart from the parts
+     * of the edge covered by redrawn chips.
+     */
+    public Rectangle2D drawIncrementalChanges(final Graphics2D g2, final PlotRenderingInfo info, final PlotChangeEvent event) {
+        if (!(event instanceof ChipsChangeEvent) || event.getPlot() != this) {
+            return null;
+        }
+        final int[] chips = ((ChipsChangeEvent)event).getChips();
+        if (info == null || info != this.lastDrawInfo || this.lastChipArea == null || this.dataset == null || this.renderer == null) {
+            return null;
+        }
+        for (int i = 0; i < chips.length; i += 2) {
+            final Number value = this.dataset.getChipValue(chips[i], chips[i + 1]);
+            if (value != null && !this.renderer.hasChipColor(value)) {
+                return null;
+            }
+        }
+        final Rectangle2D plotArea = this.lastChipArea;
+        final int xchips = this.getXChips();
+        final int ychips = this.getYChips();
+        final double space = this.dataset.getChipSpace();
+        final double[] xValues = this.getChipXValues(plotArea, xchips, space);
+        final double[] yValues = this.getChipYValues(plotArea, ychips, space);
+        final Ellipse2D waferEdge = this.renderer.isShowSurroundingGrid() ? null : this.getWaferEdge(plotArea);
+        final byte[] mask = (waferEdge == null) ? null : this.getChipMask(waferEdge, plotArea, xValues, yValues, xchips, ychips, space);
+        final Shape savedClip = g2.getClip();
+        if (this.lastChipFont != null) {
+            g2.setFont(this.lastChipFont);
+        }
+        final boolean printChipValue = this.renderer.isPrintChipValue();
+        final Rectangle2D chip = new Rectangle2D.Double();
+        Rectangle2D dirty = null;
+        Rectangle2D edgeDirty = null;
+        for (int i = 0; i < chips.length; i += 2) {
+            final int displayX = this.getDisplayX(chips[i], chips[i + 1]);
+            final int displayY = this.getDisplayY(chips[i], chips[i + 1]);
+            final int x = displayX + 1 + this.getXOffset();
+            final int y = ychips - displayY - this.getYOffset();
+            if (x < 1 || x > xchips || y < 1 || y > ychips) {
+                continue;
+            }
+            byte state = CHIP_INSIDE;
+            if (mask != null) {
+                state = mask[(x - 1) * ychips + (y - 1)];
+                if (state == CHIP_OUTSIDE) {
+                    continue;
+                }
+            }
+            g2.setClip(savedClip);
+            if (state == CHIP_PARTIAL) {
+                g2.setClip(waferEdge);
+            }
+            this.drawChip(g2, chip, x, y, xValues, yValues, ychips, space, printChipValue);
+            final Rectangle2D bounds = new Rectangle2D.Double(chip.getX() - 1.0, chip.getY() - 1.0, chip.getWidth() + 2.0, chip.getHeight() + 2.0);
+            dirty = (dirty == null) ? bounds : dirty.createUnion(bounds);
+            if (state == CHIP_PARTIAL) {
+                edgeDirty = (edgeDirty == null) ? bounds : edgeDirty.createUnion(bounds);
+            }
+        }
+        if (edgeDirty != null) {
+            // the chips drawn over the edge covered part of its outline
+            g2.setClip(savedClip);
+            g2.clip(edgeDirty);
+            this.drawWaferEdge(g2, plotArea, 100.0);
+        }
         g2.setClip(savedClip);
+        return (dirty == null) ? new Rectangle2D.Double() : dirty;
+    }
+    
+    /**
+     * Passes the change to the renderer and notifies the listeners of the
+     * plot.  A {@link WaferMapChangeEvent} is passed on with its chips when
+     * the renderer kept the colours of every other chip and the legend, so
+     * that a {@link org.jfree.chart.ChartPanel} can redraw just those chips.
+     * Like every other change to a chart, this is expected to happen on the
+     * event dispatch thread.
+     */
+    public void datasetChanged(final DatasetChangeEvent event) {
+        final boolean colorsChanged = this.renderer == null || this.renderer.datasetChanged(event);
+        final int[] chips = (event instanceof WaferMapChangeEvent) ? ((WaferMapChangeEvent)event).getChips() : null;
+        if (chips == null || colorsChanged) {
+            super.datasetChanged(event);
+            return;
+        }
+        final PlotChangeEvent plotEvent = new ChipsChangeEvent(this, chips);
+        plotEvent.setType(ChartChangeEventType.DATASET_UPDATED);
+        this.notifyListeners(plotEvent);
+    }
+    
+    /**
+     * Returns, for every chip position, whether the chip lies outside, across
+     * or inside the wafer edge.  The mask only depends on the grid geometry,
+     * so it is kept until the plot area or the chip counts change.
+     */
+    protected byte[] getChipMask(final Ellipse2D waferEdge, final Rectangle2D plotArea, final double[] xValues, final double[] yValues, final int xchips, final int ychips, final double space) {
+        if (this.chipMask != null && this.chipMaskXChips == xchips && this.chipMaskYChips == ychips && this.chipMaskSpace == space && plotArea.equals(this.chipMaskArea)) {
+            return this.chipMask;
+        }
+        final byte[] mask = new byte[xchips * ychips];
+        final double startX = xValues[1];
+        final double chipWidth = xValues[0];
+        final double startY = yValues[1];
+        final double chipHeight = yValues[0];
+        // grow each chip by the outline stroke so that the outline is
+        // clipped exactly as before
+        final double pad = 1.0;
+        for (int x = 1; x <= xchips; ++x) {
+            final double upperLeftX = startX - chipWidth + chipWidth * x + space * (x - 1) - pad;
+            for (int y = 1; y <= ychips; ++y) {
+                final double upperLeftY = startY - chipHeight + chipHeight * y + space * (y - 1) - pad;
+                final double w = chipWidth + 2.0 * pad;
+                final double h = chipHeight + 2.0 * pad;
+                byte state = CHIP_OUTSIDE;
+                if (waferEdge.contains(upperLeftX, upperLeftY, w, h)) {
+                    state = CHIP_INSIDE;
+                }
+                else if (waferEdge.intersects(upperLeftX, upperLeftY, w, h)) {
+                    state = CHIP_PARTIAL;
+                }
+                mask[(x - 1) * ychips + (y - 1)] = state;
+            }
+        }
+        this.chipMask = mask;
+        this.chipMaskArea = (Rectangle2D)plotArea.clone();
+        this.chipMaskXChips = xchips;
+        this.chipMaskYChips = ychips;
+        this.chipMaskSpace = space;
+        return mask;
     }
     
     protected int getXOffset() {
@@ -299,7 +592,6 @@ public class WaferMapPlot extends Plot implements RendererChangeListener, Clonea
     }
     
     protected void drawWaferEdge(final Graphics2D g2, final Rectangle2D plotArea, final double includePct) {
-    	System.out.println("check wafer circle");
     	if (!this.renderer.isShowWaferCircle())
     		return;
         final Ellipse2D waferEdge = this.getWaferEdge(plotArea);
@@ -377,6 +669,24 @@ public class WaferMapPlot extends Plot implements RendererChangeListener, Clonea
     public void zoomRangeAxes(final double lowerPercent, final double upperPercent, final PlotRenderingInfo state, final Point2D source) {
     }
     
+    /**
+     * A plot change event that lists the chips whose values changed.
+     */
+    private static class ChipsChangeEvent extends PlotChangeEvent
+    {
+        private static final long serialVersionUID = -2315384761630294721L;
+        private final int[] chips;
+        
+        public ChipsChangeEvent(final WaferMapPlot plot, final int[] chips) {
+            super(plot);
+            this.chips = chips;
+        }
+        
+        public int[] getChips() {
+            return this.chips;
+        }
+    }
+    
     static {
         DEFAULT_GRIDLINE_STROKE = new BasicStroke(0.5f, 0, 2, 0.0f, new float[] { 2.0f, 2.0f }, 0.0f);
         WaferMapPlot.df = new DecimalFormat("0.#####E0");
@@ -3,27 +3,30 @@ package org.jfree.chart.renderer;
 import java.awt.Stroke;
 import java.awt.Shape;
 import java.util.List;
+import java.util.Arrays;
 import org.jfree.chart.LegendItem;
 import java.awt.geom.Rectangle2D;
 import java.text.DecimalFormat;
 import java.util.Collection;
-import com.google.common.collect.Lists;
 import org.jfree.chart.LegendItemCollection;
 import java.util.Iterator;
 import java.util.Set;
+import org.jfree.data.general.DatasetChangeEvent;
 import org.jfree.data.general.WaferMapDataset;
+import org.jfree.data.general.WaferMapChangeEvent;
+import org.jfree.data.statistics.QuantileSketch;
 import org.jfree.chart.plot.DrawingSupplier;
 import java.util.TreeMap;
-import org.jfree.chart.ChartColor;
 import java.awt.Color;
+import java.awt.EventQueue;
 import org.jfree.chart.plot.WaferMapPlot;
 import java.util.Map;
 import java.awt.Paint;
 
 public class WaferMapRenderer extends AbstractRenderer
 {
-    private Paint[] defaultColors;
-    private Map<Number,Integer> paintIndex;
+    private List<Paint> defaultColors;
+    private TreeMap<Number,Integer> paintIndex;
     private WaferMapPlot plot;
     private Map<String, String> binDescriptions;
     private int paintLimit;
@@ -32,11 +35,29 @@ public class WaferMapRenderer extends AbstractRenderer
     public static final int VALUE_INDEX = 1;
     public static final int CONSISTENT_INDEX = 2;
     public static final int BLUE_ORANGE_INDEX = 3;
+    public static final int QUANTILE_INDEX = 4;
     private int paintIndexMethod;
     private boolean printChipValue;
     private boolean showSurroundingGrid;
     private boolean showWaferCircle = true;
-    private LookupPaintScale paintScale;
+    private PaintScale paintScale;
+    private static final int BLUE_ORANGE_RESOLUTION = 1000;
+    private String colorMap = ColorMapRegistry.BLUE_RED;
+    private static final int MAX_DIRECT_PAINT_SPAN = 4096;
+    private transient Paint[] chipPaints;
+    private transient double[] chipPaintKeys;
+    private transient int chipPaintBase;
+    private transient LegendItemCollection legendItems;
+    private transient double[] colorMinValue;
+    private transient double[] colorMaxValue;
+    private transient int[] colorValueCount;
+    private double[] quantileCuts;
+    private transient Paint[] quantilePaints;
+    private boolean paintIndexSequential;
+    private double valueIndexMin;
+    private double valueIndexStep;
+    private transient boolean paintIndexStale;
+    private transient WaferMapDataset indexedDataset;
     
     public WaferMapRenderer() {
         this(null, null);
@@ -47,7 +68,7 @@ public class WaferMapRenderer extends AbstractRenderer
     }
     
     public WaferMapRenderer(final Integer paintLimit, final Integer paintIndexMethod) {
-        this.defaultColors = new Paint[] { Color.GREEN, new Color(255, 85, 85), new Color(85, 85, 255), new Color(85, 80, 85), new Color(255, 255, 85), new Color(255, 85, 255), new Color(85, 255, 255), Color.pink, Color.gray, ChartColor.DARK_RED, ChartColor.DARK_BLUE, ChartColor.DARK_YELLOW, ChartColor.DARK_MAGENTA, ChartColor.DARK_CYAN, Color.darkGray, ChartColor.LIGHT_RED, ChartColor.LIGHT_BLUE, ChartColor.LIGHT_GREEN, ChartColor.LIGHT_YELLOW, ChartColor.LIGHT_MAGENTA, ChartColor.LIGHT_CYAN, Color.lightGray, ChartColor.VERY_DARK_RED, ChartColor.VERY_DARK_BLUE, ChartColor.VERY_DARK_YELLOW, ChartColor.VERY_DARK_MAGENTA, ChartColor.VERY_DARK_CYAN, ChartColor.VERY_LIGHT_RED, ChartColor.VERY_LIGHT_BLUE, ChartColor.VERY_LIGHT_YELLOW, ChartColor.VERY_LIGHT_MAGENTA, ChartColor.VERY_LIGHT_CYAN, Color.BLACK };
+        this.defaultColors = ColorMapRegistry.getDefaultColors();
         this.binDescriptions = null;
         this.printChipValue = false;
         this.showSurroundingGrid = false;
@@ -79,6 +100,9 @@ public class WaferMapRenderer extends AbstractRenderer
             case 3: {
                 return true;
             }
+            case 4: {
+                return true;
+            }
             default: {
                 return false;
             }
@@ -100,25 +124,237 @@ public class WaferMapRenderer extends AbstractRenderer
     
     public void setPlot(final WaferMapPlot plot) {
         this.plot = plot;
+        if (this.paintIndexMethod == 2) {
+            // the consistent palette is applied once here, so that colours set
+            // later with setColorForIndex() survive rebuilds of the index
+            for (int i = 0; i < this.defaultColors.size(); ++i) {
+                this.setSeriesPaint(i, this.defaultColors.get(i));
+            }
+        }
         this.makePaintIndex();
     }
     
     public Paint getChipColor(final Number value) {
+        if (this.paintIndexStale) {
+            this.makePaintIndex();
+        }
         if (this.paintScale != null) {
             return this.paintScale.getPaint(value.doubleValue());
         }
+        if (this.quantileCuts != null) {
+            return this.getQuantilePaint(this.getQuantileIndex(value.doubleValue()));
+        }
+        if (this.chipPaints == null) {
+            this.compileChipPaints();
+        }
+        final double v = value.doubleValue();
+        Paint result = null;
+        if (this.chipPaintKeys == null) {
+            final int i = (int)v - this.chipPaintBase;
+            if ((int)v == v && i >= 0 && i < this.chipPaints.length) {
+                result = this.chipPaints[i];
+            }
+        }
+        else {
+            final int i = Arrays.binarySearch(this.chipPaintKeys, v);
+            if (i >= 0) {
+                result = this.chipPaints[i];
+            }
+        }
+        if (result != null) {
+            return result;
+        }
         return this.getSeriesPaint(this.getPaintIndex(value));
     }
     
+    /**
+     * Resolves the paint for every value in the paint index into primitive
+     * lookup tables, so that getChipColor() needs no map lookups or boxing.
+     * Integer bin codes in a small range are looked up directly by value,
+     * anything else by a binary search over the sorted values.
+     */
+    private void compileChipPaints() {
+        final int size = this.paintIndex.size();
+        final double[] keys = new double[size];
+        final Paint[] paints = new Paint[size];
+        boolean integral = true;
+        int i = 0;
+        for (final Map.Entry<Number, Integer> entry : this.paintIndex.entrySet()) {
+            keys[i] = entry.getKey().doubleValue();
+            paints[i] = this.getSeriesPaint(entry.getValue());
+            integral &= ((int)keys[i] == keys[i]);
+            ++i;
+        }
+        if (size > 0 && integral && keys[size - 1] - keys[0] < MAX_DIRECT_PAINT_SPAN) {
+            this.chipPaintBase = (int)keys[0];
+            this.chipPaintKeys = null;
+            this.chipPaints = new Paint[(int)keys[size - 1] - this.chipPaintBase + 1];
+            for (int j = 0; j < size; ++j) {
+                this.chipPaints[(int)keys[j] - this.chipPaintBase] = paints[j];
+            }
+        }
+        else {
+            this.chipPaintBase = 0;
+            this.chipPaintKeys = keys;
+            this.chipPaints = paints;
+        }
+    }
+    
+    private void invalidateChipPaints() {
+        this.chipPaints = null;
+        this.chipPaintKeys = null;
+        this.quantilePaints = null;
+        this.legendItems = null;
+    }
+    
+    public void setSeriesPaint(final int series, final Paint paint, final boolean notify) {
+        this.invalidateChipPaints();
+        super.setSeriesPaint(series, paint, notify);
+    }
+    
+    protected void fireChangeEvent() {
+        this.invalidateChipPaints();
+        super.fireChangeEvent();
+    }
+    
+    public boolean hasChipColor(final Number value) {
+        if (this.paintIndexStale) {
+            return false;
+        }
+        return this.paintScale != null || this.quantileCuts != null || this.paintIndex.containsKey(value);
+    }
+    
     private int getPaintIndex(final Number value) {
-        return this.paintIndex.get(value);
+        final Integer index = this.paintIndex.get(value);
+        if (index == null) {
+            // the value was set without a change event reaching the renderer
+            return this.addPaintIndexValue(value);
+        }
+        return index;
+    }
+    
+    /**
+     * Updates the paint index for the chips carried by a
+     * {@link WaferMapChangeEvent}.  New values get a colour without a full
+     * rescan of the wafer; changes that cannot be absorbed (another dataset,
+     * an event without chips, a value outside the colour scale) mark the
+     * index stale and it is rebuilt the next time a colour is needed.
+     * <p>
+     * The index is only updated in place on the event dispatch thread, where
+     * the chart is drawn.  An event from another thread marks it stale, so
+     * the tables are never written while a paint reads them.
+     *
+     * @return true if the legend or the colour of existing values changed, in
+     *         which case the plot must be redrawn in full.
+     */
+    public boolean datasetChanged(final DatasetChangeEvent event) {
+        this.legendItems = null;
+        final WaferMapDataset data = (this.plot == null) ? null : this.plot.getDataset();
+        if (data == null) {
+            return true;
+        }
+        final int[] chips = (event instanceof WaferMapChangeEvent) ? ((WaferMapChangeEvent)event).getChips() : null;
+        if (chips == null || data != this.indexedDataset || !EventQueue.isDispatchThread()) {
+            this.paintIndexStale = true;
+            return true;
+        }
+        if (this.paintIndexStale) {
+            return true;
+        }
+        boolean changed = false;
+        for (int i = 0; i < chips.length && !this.paintIndexStale; i += 2) {
+            final Number value = data.getChipValue(chips[i], chips[i + 1]);
+            if (value != null && this.updatePaintIndex(value, data)) {
+                changed = true;
+            }
+        }
+        return changed || this.paintIndexStale;
+    }
+    
+    private boolean updatePaintIndex(final Number value, final WaferMapDataset data) {
+        if (this.paintScale != null) {
+            final Number min = data.getAllGroupsMinValue();
+            final Number max = data.getAllGroupsMaxValue();
+            if ((min != null && min.doubleValue() < this.paintScale.getLowerBound()) || (max != null && max.doubleValue() > this.paintScale.getUpperBound())) {
+                this.paintIndexStale = true;
+            }
+            return false;
+        }
+        if (this.quantileCuts != null) {
+            final double v = value.doubleValue();
+            final int index = this.getQuantileIndex(v);
+            final boolean extended = this.colorValueCount == null || index >= this.colorValueCount.length || v < this.colorMinValue[index] || v > this.colorMaxValue[index];
+            this.addColorRange(v, index);
+            return extended;
+        }
+        if (this.paintIndex.containsKey(value)) {
+            return false;
+        }
+        this.addPaintIndexValue(value);
+        return true;
+    }
+    
+    /**
+     * Gives a value that is missing from the paint index the colour the
+     * current index method would choose for it, and returns that colour.
+     */
+    private int addPaintIndexValue(final Number value) {
+        int index;
+        if (this.paintIndexMethod == 2) {
+            index = this.getConsistentPosition(value);
+        }
+        else if (this.paintIndexSequential) {
+            index = this.paintIndex.size();
+            if (index >= this.paintLimit) {
+                // too many values for one colour each, switch methods
+                this.paintIndexStale = true;
+                index = this.paintLimit;
+            }
+            else if (this.paintIndex.higherKey(value) != null) {
+                // colours follow the sorted values, so only a new largest
+                // value can be appended without moving the others
+                this.paintIndexStale = true;
+            }
+        }
+        else if (this.paintIndexMethod == 1) {
+            final double v = value.doubleValue();
+            final double max = this.valueIndexMin + this.valueIndexStep * this.paintLimit;
+            if (v < this.valueIndexMin || v > max || Double.isNaN(v)) {
+                this.paintIndexStale = true;
+            }
+            index = (this.valueIndexStep > 0.0) ? (int)Math.ceil((v - this.valueIndexMin) / this.valueIndexStep) - 1 : 0;
+            index = Math.max(0, Math.min(index, this.paintLimit));
+        }
+        else {
+            Map.Entry<Number,Integer> neighbour = this.paintIndex.floorEntry(value);
+            if (neighbour == null) {
+                neighbour = this.paintIndex.ceilingEntry(value);
+            }
+            index = (neighbour == null) ? 0 : neighbour.getValue();
+        }
+        // the compiled colour table is left alone, values missing from it
+        // fall back to the paint index
+        this.putPaintIndex(value, index);
+        this.legendItems = null;
+        return index;
     }
     
     private void makePaintIndex() {
+        this.invalidateChipPaints();
+        this.paintIndex.clear();
+        this.quantileCuts = null;
+        this.paintIndexSequential = false;
+        this.paintIndexStale = false;
+        this.makeColorRanges();
         if (this.plot == null) {
             return;
         }
         final WaferMapDataset data = this.plot.getDataset();
+        this.indexedDataset = data;
+        if (this.paintIndexMethod == 4) {
+            this.makeQuantileIndex(data);
+            return;
+        }
         final Set<Number> uniqueValues = data.getUniqueValues();
         if (this.paintIndexMethod == 2) {
             this.makeConsistentIndex(uniqueValues);
@@ -127,10 +363,11 @@ public class WaferMapRenderer extends AbstractRenderer
             this.makeBlueOrangeIndex(uniqueValues, data);
         }
         else if (uniqueValues.size() <= this.paintLimit) {
+            this.paintIndexSequential = true;
             int count = 0;
             final Iterator<Number> i = uniqueValues.iterator();
             while (i.hasNext()) {
-                this.paintIndex.put(i.next(), count++);
+                this.putPaintIndex(i.next(), count++);
             }
         }
         else {
@@ -150,58 +387,52 @@ public class WaferMapRenderer extends AbstractRenderer
     }
     
     private void makeBlueOrangeIndex(final Set uniqueValues, final WaferMapDataset data) {
-        Number min = data.getAllGroupsMinValue();
-        Number max = data.getAllGroupsMaxValue();
-        //final int size = uniqueValues.size();
-        int i = 0;
-       // final Set<Number> uniqueNumbers = (Set<Number>)uniqueValues;
-        final float[] blueVals = new float[3];
-        Color.RGBtoHSB(Color.BLUE.getRed(), Color.BLUE.getGreen(), Color.BLUE.getBlue(), blueVals);
-        final float[] c2Vals = new float[3];
-        final Color c2 = Color.RED;
-        double doubleMin = min.doubleValue();
-        double doubleMax = max.doubleValue();
-        if (min == null || Double.isInfinite(doubleMin) || Double.isNaN(doubleMin)) {
-            min = 0.0;
-            doubleMin = min.doubleValue();
-        }
-        if (max == null || Double.isInfinite(doubleMax) || Double.isNaN(doubleMax)) {
-            max = 1.0;
-            doubleMax = max.doubleValue();
-        }
-        if (max.equals(min)) {
+        final Number min = data.getAllGroupsMinValue();
+        final Number max = data.getAllGroupsMaxValue();
+        double doubleMin = (min == null) ? Double.NaN : min.doubleValue();
+        double doubleMax = (max == null) ? Double.NaN : max.doubleValue();
+        if (Double.isInfinite(doubleMin) || Double.isNaN(doubleMin)) {
+            doubleMin = 0.0;
+        }
+        if (Double.isInfinite(doubleMax) || Double.isNaN(doubleMax)) {
+            doubleMax = 1.0;
+        }
+        if (doubleMax == doubleMin) {
             if (doubleMax > 0.0) {
-                min = doubleMax / 2.0;
+                doubleMin = doubleMax / 2.0;
             }
             else if (doubleMax == 0.0) {
-                min = -1.0;
+                doubleMin = -1.0;
             }
             else {
-                min = doubleMax * 2.0;
-            }
-            doubleMin = min.doubleValue();
-        }
-        final double interval = (max.doubleValue() - min.doubleValue()) / 1000.0;
-        Color.RGBtoHSB(c2.getRed(), c2.getGreen(), c2.getBlue(), c2Vals);
-        this.paintScale = new LookupPaintScale(min.doubleValue(), max.doubleValue(), (Paint)Color.RED);
-        //for (double value = min.doubleValue(); value <= max.doubleValue(); value = max.doubleValue()) {
-        double value = min.doubleValue();
-        while (value <= max.doubleValue()) {
-            final float hue = blueVals[0] + (c2Vals[0] - blueVals[0]) * (i + 1) / 1000.0f;
-            final Color c3 = Color.getHSBColor(hue, 1.0f, 1.0f);
-            this.paintScale.add(value, (Paint)c3);
-            ++i;
-            final double lastValue = value;
-            value += interval;
-            //System.out.println("value "+value +" interval "+interval);
-            if (value > max.doubleValue() && lastValue < max.doubleValue()) 
-            	value = max.doubleValue();
+                doubleMin = doubleMax * 2.0;
+            }
         }
-      //  System.out.println("Finish makeBlueOrange");
+        this.paintScale = ColorMapRegistry.getPaintScale(this.colorMap, doubleMin, doubleMax, BLUE_ORANGE_RESOLUTION);
+    }
+    
+    public String getColorMap() {
+        return this.colorMap;
+    }
+    
+    /**
+     * Sets the {@link ColorMapRegistry} scheme used by the
+     * {@link #BLUE_ORANGE_INDEX} method, for example
+     * {@link ColorMapRegistry#VIRIDIS}.
+     */
+    public void setColorMap(final String colorMap) {
+        if (!ColorMapRegistry.isScheme(colorMap)) {
+            throw new IllegalArgumentException("Unknown color map: " + colorMap);
+        }
+        this.colorMap = colorMap;
+        if (this.paintScale != null) {
+            this.makePaintIndex();
+        }
+        this.fireChangeEvent();
     }
     
     public PaintScale getPaintScale() {
-        return (PaintScale)this.paintScale;
+        return this.paintScale;
     }
     
     public void setColorForIndex(final int binNumber, final Paint p) {
@@ -211,22 +442,117 @@ public class WaferMapRenderer extends AbstractRenderer
         }
     }
     
-    private void makeConsistentIndex(final Set<Number> uniqueValues) {
-        for (int i = 0; i < this.defaultColors.length; ++i) {
-            this.setSeriesPaint(i, this.defaultColors[i]);
+    /**
+     * Adds a value to the paint index and to the value range of its colour.
+     */
+    private void putPaintIndex(final Number value, final int index) {
+        final Integer previous = this.paintIndex.put(value, index);
+        if (previous == null) {
+            this.addColorRange(value.doubleValue(), index);
+        }
+        else if (previous != index) {
+            // the value moved to another colour, rebuild the ranges lazily
+            this.colorValueCount = null;
+        }
+    }
+    
+    private void addColorRange(final double value, final int index) {
+        if (this.colorValueCount == null || index < 0) {
+            return;
+        }
+        if (index >= this.colorValueCount.length) {
+            final int oldLength = this.colorValueCount.length;
+            this.colorMinValue = Arrays.copyOf(this.colorMinValue, index + 1);
+            this.colorMaxValue = Arrays.copyOf(this.colorMaxValue, index + 1);
+            this.colorValueCount = Arrays.copyOf(this.colorValueCount, index + 1);
+            Arrays.fill(this.colorMinValue, oldLength, index + 1, Double.POSITIVE_INFINITY);
+            Arrays.fill(this.colorMaxValue, oldLength, index + 1, Double.NEGATIVE_INFINITY);
+        }
+        if (value < this.colorMinValue[index]) {
+            this.colorMinValue[index] = value;
+        }
+        if (value > this.colorMaxValue[index]) {
+            this.colorMaxValue[index] = value;
         }
+        ++this.colorValueCount[index];
+    }
+    
+    /**
+     * Rebuilds the (min, max, count) table per colour from the paint index.
+     */
+    private void makeColorRanges() {
+        final int colors = this.paintLimit + 1;
+        this.colorMinValue = new double[colors];
+        this.colorMaxValue = new double[colors];
+        this.colorValueCount = new int[colors];
+        Arrays.fill(this.colorMinValue, Double.POSITIVE_INFINITY);
+        Arrays.fill(this.colorMaxValue, Double.NEGATIVE_INFINITY);
+        for (final Map.Entry<Number, Integer> entry : this.paintIndex.entrySet()) {
+            this.addColorRange(entry.getKey().doubleValue(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Splits the values into paintLimit colours holding about the same
+     * number of chips each.  The cut points come from a
+     * {@link QuantileSketch} streamed over the chip values, and values are
+     * mapped to colours by a binary search over the cut points, so no
+     * per-value entries are needed in the paint index.
+     */
+    private void makeQuantileIndex(final WaferMapDataset data) {
+        final double[] values = data.getChipValues();
+        final QuantileSketch sketch = new QuantileSketch();
+        sketch.update(values);
+        final int colors = Math.max(1, this.paintLimit);
+        final double[] q = new double[colors - 1];
+        for (int i = 0; i < q.length; ++i) {
+            q[i] = (i + 1) / (double)colors;
+        }
+        this.quantileCuts = sketch.getQuantiles(q);
+        for (int i = 0; i < values.length; ++i) {
+            if (values[i] == values[i]) {
+                this.addColorRange(values[i], this.getQuantileIndex(values[i]));
+            }
+        }
+    }
+    
+    private int getQuantileIndex(final double value) {
+        final int i = Arrays.binarySearch(this.quantileCuts, value);
+        return (i < 0) ? -i - 1 : i;
+    }
+    
+    private Paint getQuantilePaint(final int index) {
+        Paint[] paints = this.quantilePaints;
+        if (paints == null) {
+            paints = new Paint[this.quantileCuts.length + 1];
+            this.quantilePaints = paints;
+        }
+        Paint result = paints[index];
+        if (result == null) {
+            // lookupSeriesPaint() may fill in a missing series paint through
+            // setSeriesPaint(), which drops the cache; the cached paints are
+            // still valid, so put it back
+            result = this.lookupSeriesPaint(index);
+            paints[index] = result;
+            this.quantilePaints = paints;
+        }
+        return result;
+    }
+    
+    private void makeConsistentIndex(final Set<Number> uniqueValues) {
         final Iterator<Number> j = uniqueValues.iterator();
         while (j.hasNext()) {
             if (j != null) {
                 final Number value = j.next();
-                int position = value.intValue() % this.paintLimit - 1;
-                if (position == -1) {
-                    position = this.paintLimit;
-                }
-                this.paintIndex.put(value, position);
+                this.putPaintIndex(value, this.getConsistentPosition(value));
             }
         }
-        this.paintIndex.put(0.0, this.paintLimit);
+        this.putPaintIndex(0.0, this.paintLimit);
+    }
+    
+    private int getConsistentPosition(final Number value) {
+        final int position = value.intValue() % this.paintLimit - 1;
+        return (position == -1) ? this.paintLimit : position;
     }
     
     private void makePositionIndex(final Set<Number> uniqueValues) {
@@ -234,7 +560,7 @@ public class WaferMapRenderer extends AbstractRenderer
         int count = 0;
         int paint = 0;
         for (final Number value : uniqueValues) {
-            this.paintIndex.put(value, paint);
+            this.putPaintIndex(value, paint);
             if (++count % valuesPerColor == 0) {
                 ++paint;
             }
@@ -247,6 +573,8 @@ public class WaferMapRenderer extends AbstractRenderer
     private void makeValueIndex(final Number max, final Number min, final Set<Number> uniqueValues) {
         final double valueRange = max.doubleValue() - min.doubleValue();
         final double valueStep = valueRange / this.paintLimit;
+        this.valueIndexMin = min.doubleValue();
+        this.valueIndexStep = valueStep;
         int paint = 0;
         double cutPoint = min.doubleValue() + valueStep;
         for (final Number value : uniqueValues) {
@@ -256,7 +584,7 @@ public class WaferMapRenderer extends AbstractRenderer
                     paint = this.paintLimit;
                 }
             }
-            this.paintIndex.put(value, paint);
+            this.putPaintIndex(value, paint);
         }
     }
     
@@ -267,13 +595,7 @@ public class WaferMapRenderer extends AbstractRenderer
             return result;
         }
         final WaferMapDataset data = this.plot.getDataset();
-        final double dataMin = data.getAllGroupsMinValue();
         final double dataMax = data.getAllGroupsMaxValue();
-        final Set<Number> uniqueValues = data.getUniqueValues();
-        final List<Double> uniqueValueList = Lists.newArrayList();
-		for (Number n : uniqueValues){
-			uniqueValueList.add(n.doubleValue());
-		}
         final double interval = (this.paintScale.getUpperBound() - this.paintScale.getLowerBound()) / legendEntriesDivisor;
         double value = this.paintScale.getLowerBound();
         final DecimalFormat df = new DecimalFormat("0.#####E0");
@@ -300,9 +622,56 @@ public class WaferMapRenderer extends AbstractRenderer
         return result;
     }
     
+    /**
+     * Returns the legend items, which are built once and kept until the
+     * paint index, paint scale, series paints, bin descriptions or dataset
+     * change.  The returned collection is shared and must not be modified.
+     */
     public LegendItemCollection getLegendCollection() {
-        if (this.paintIndexMethod == 3) {
-            return this.makePaintScaleLegendCollection();
+        if (this.paintIndexStale) {
+            this.makePaintIndex();
+        }
+        if (this.legendItems == null) {
+            if (this.paintIndexMethod == 3) {
+                this.legendItems = this.makePaintScaleLegendCollection();
+            }
+            else {
+                this.legendItems = this.makePaintIndexLegendCollection();
+            }
+        }
+        return this.legendItems;
+    }
+    
+    /**
+     * Creates one legend item per colour, labelled with the range of values
+     * shown in that colour, for paint indexes with more values than colours.
+     */
+    private LegendItemCollection makeRangeLegendCollection() {
+        final LegendItemCollection result = new LegendItemCollection();
+        final DecimalFormat df = new DecimalFormat("0.#####E0");
+        final int colors = this.paintLimit + 1;
+        for (int i = 0; i < colors; ++i) {
+            if (this.getPaintValueCount(i) == 0) {
+                continue;
+            }
+            final double min = this.getMinPaintValue(i);
+            final double max = this.getMaxPaintValue(i);
+            final String label = (min == max) ? df.format(min) : df.format(min) + " - " + df.format(max);
+            final Shape shape = new Rectangle2D.Double(-3.0, -5.0, 6.0, 10.0);
+            Paint paint = (this.quantileCuts != null) ? this.getQuantilePaint(i) : this.getSeriesPaint(i);
+            if (paint == null) {
+                paint = Color.black;
+            }
+            final Paint outlinePaint = Color.black;
+            final Stroke outlineStroke = WaferMapRenderer.DEFAULT_STROKE;
+            result.add(new LegendItem(label, label, (String)null, (String)null, shape, paint, outlineStroke, outlinePaint));
+        }
+        return result;
+    }
+    
+    private LegendItemCollection makePaintIndexLegendCollection() {
+        if (this.quantileCuts != null || (this.paintIndexMethod != 2 && this.paintIndex.size() > this.paintLimit)) {
+            return this.makeRangeLegendCollection();
         }
         final LegendItemCollection result = new LegendItemCollection();
         if (this.paintIndex != null && this.paintIndex.size() > 0) {
@@ -334,28 +703,52 @@ public class WaferMapRenderer extends AbstractRenderer
         return result;
     }
     
-    private Number getMinPaintValue(final Integer index) {
-        double minValue = Double.POSITIVE_INFINITY;
-        for (final Map.Entry<Number,Integer> entry : this.paintIndex.entrySet()) {
-            if (entry.getValue().equals(index) && entry.getKey().doubleValue() < minValue) {
-                minValue = entry.getKey().doubleValue();
-            }
+    /**
+     * Returns the smallest value shown in the colour with the given index,
+     * or positive infinity if no value uses that colour.
+     */
+    public double getMinPaintValue(final int index) {
+        if (this.colorValueCount == null) {
+            this.makeColorRanges();
+        }
+        if (index < 0 || index >= this.colorMinValue.length) {
+            return Double.POSITIVE_INFINITY;
         }
-        return new Double(minValue);
+        return this.colorMinValue[index];
     }
     
-    private Number getMaxPaintValue(final Integer index) {
-        double maxValue = Double.NEGATIVE_INFINITY;
-        for (final Map.Entry<Number,Integer> entry : this.paintIndex.entrySet()) {
-            if (entry.getValue().equals(index) && entry.getKey().doubleValue() > maxValue) {
-                maxValue = entry.getKey().doubleValue();
-            }
+    /**
+     * Returns the largest value shown in the colour with the given index,
+     * or negative infinity if no value uses that colour.
+     */
+    public double getMaxPaintValue(final int index) {
+        if (this.colorValueCount == null) {
+            this.makeColorRanges();
+        }
+        if (index < 0 || index >= this.colorMaxValue.length) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return this.colorMaxValue[index];
+    }
+    
+    /**
+     * Returns the number of distinct values shown in the colour with the
+     * given index (the number of chips for the {@link #QUANTILE_INDEX}
+     * method).
+     */
+    public int getPaintValueCount(final int index) {
+        if (this.colorValueCount == null) {
+            this.makeColorRanges();
+        }
+        if (index < 0 || index >= this.colorValueCount.length) {
+            return 0;
         }
-        return new Double(maxValue);
+        return this.colorValueCount[index];
     }
     
     public void setBinDescriptions(final Map<String, String> value) {
         this.binDescriptions = value;
+        this.legendItems = null;
     }
     
     public boolean isPrintChipValue() {
@@ -0,0 +1,312 @@
+package org.jfree.data.statistics;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A histogram of recent observations, with equal width bins.  In sliding
+ * window mode the counts are kept per time slice in a ring, and
+ * {@link #tick()} starts a new slice by subtracting the counts of the
+ * oldest one, so the histogram always covers the last <code>slices</code>
+ * slices.  In decaying mode (see {@link #createDecaying(int, double,
+ * double, double)}) every tick multiplies the counts by a factor instead,
+ * giving older observations exponentially less weight.  Either way a tick
+ * costs O(bins), however many observations the window holds.
+ * <p>
+ * A {@link HistogramDataset} series can be backed by one of these, see
+ * {@link HistogramDataset#addSeries(Comparable, WindowedHistogram)}.
+ */
+public class WindowedHistogram implements Cloneable, Serializable {
+
+    /** For serialization. */
+    private static final long serialVersionUID = 6280531846671032919L;
+
+    /** The lower bound of the bins. */
+    private double minimum;
+
+    /** The upper bound of the bins. */
+    private double maximum;
+
+    /** The counts per slice (<code>null</code> in decaying mode). */
+    private long[][] ring;
+
+    /** The index of the current slice in the ring. */
+    private int current;
+
+    /** The counts of the whole window. */
+    private double[] counts;
+
+    /** The total of the window counts. */
+    private double total;
+
+    /** The factor applied to the counts on each tick in decaying mode. */
+    private double decay;
+
+    /** The number of changes made to the counts. */
+    private transient long changeCount;
+
+    /**
+     * Creates a sliding window histogram.
+     *
+     * @param bins  the number of bins (must be at least 1).
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     * @param slices  the number of slices in the window (must be at
+     *     least 1).
+     */
+    public WindowedHistogram(int bins, double minimum, double maximum,
+            int slices) {
+        this(bins, minimum, maximum);
+        if (slices < 1) {
+            throw new IllegalArgumentException(
+                    "The 'slices' value must be at least 1.");
+        }
+        this.ring = new long[slices][bins];
+        this.decay = 1.0;
+    }
+
+    private WindowedHistogram(int bins, double minimum, double maximum) {
+        if (bins < 1) {
+            throw new IllegalArgumentException(
+                    "The 'bins' value must be at least 1.");
+        }
+        if (!(maximum > minimum)) {
+            throw new IllegalArgumentException(
+                    "Requires 'minimum' < 'maximum'.");
+        }
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.counts = new double[bins];
+    }
+
+    /**
+     * Creates an exponentially decaying histogram.
+     *
+     * @param bins  the number of bins (must be at least 1).
+     * @param minimum  the lower bound of the bin range.
+     * @param maximum  the upper bound of the bin range.
+     * @param decay  the factor the counts are multiplied by on each tick
+     *     (greater than 0 and less than 1, for a half-life of
+     *     <code>h</code> ticks use <code>0.5^(1/h)</code>).
+     *
+     * @return The histogram.
+     */
+    public static WindowedHistogram createDecaying(int bins, double minimum,
+            double maximum, double decay) {
+        if (!(decay > 0.0 && decay < 1.0)) {
+            throw new IllegalArgumentException(
+                    "The 'decay' must be between 0 and 1.");
+        }
+        WindowedHistogram result = new WindowedHistogram(bins, minimum,
+                maximum);
+        result.decay = decay;
+        return result;
+    }
+
+    /**
+     * Returns <code>true</code> if this histogram decays rather than using
+     * a sliding window.
+     *
+     * @return A boolean.
+     */
+    public boolean isDecaying() {
+        return this.ring == null;
+    }
+
+    /**
+     * Returns the number of bins.
+     *
+     * @return The bin count.
+     */
+    public int getBinCount() {
+        return this.counts.length;
+    }
+
+    /**
+     * Returns the lower bound of the bins.
+     *
+     * @return The minimum.
+     */
+    public double getMinimum() {
+        return this.minimum;
+    }
+
+    /**
+     * Returns the upper bound of the bins.
+     *
+     * @return The maximum.
+     */
+    public double getMaximum() {
+        return this.maximum;
+    }
+
+    /**
+     * Returns the count of a bin over the window (a weight in decaying
+     * mode).
+     *
+     * @param bin  the bin index.
+     *
+     * @return The count.
+     */
+    public double getCount(int bin) {
+        return this.counts[bin];
+    }
+
+    /**
+     * Returns the total of the bin counts.
+     *
+     * @return The total.
+     */
+    public double getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Returns a number that changes whenever the counts change, so that
+     * views of the histogram can tell when to rebuild.
+     *
+     * @return The change count.
+     */
+    public long getChangeCount() {
+        return this.changeCount;
+    }
+
+    /**
+     * Adds an observation to the current slice, using the bin rules of
+     * {@link HistogramDataset#getBinIndex(Double, double, double, int)}.
+     *
+     * @param value  the value.
+     */
+    public void update(double value) {
+        int bin = HistogramBinning.binIndex(value, this.minimum, this.maximum,
+                this.counts.length);
+        if (this.ring != null) {
+            this.ring[this.current][bin]++;
+        }
+        this.counts[bin]++;
+        this.total++;
+        this.changeCount++;
+    }
+
+    /**
+     * Adds an array of observations to the current slice.
+     *
+     * @param values  the values (<code>null</code> not permitted).
+     */
+    public void update(double[] values) {
+        for (int i = 0; i < values.length; i++) {
+            update(values[i]);
+        }
+    }
+
+    /**
+     * Starts a new time slice: in sliding window mode the oldest slice is
+     * dropped from the window, in decaying mode all counts are multiplied
+     * by the decay factor.
+     */
+    public void tick() {
+        this.changeCount++;
+        if (this.ring == null) {
+            for (int i = 0; i < this.counts.length; i++) {
+                this.counts[i] *= this.decay;
+            }
+            this.total *= this.decay;
+            return;
+        }
+        this.current = (this.current + 1) % this.ring.length;
+        long[] expired = this.ring[this.current];
+        long removed = 0;
+        for (int i = 0; i < expired.length; i++) {
+            this.counts[i] -= expired[i];
+            removed += expired[i];
+            expired[i] = 0;
+        }
+        this.total -= removed;
+    }
+
+    /**
+     * Starts <code>n</code> new time slices, for example after a gap in the
+     * data.
+     *
+     * @param n  the number of ticks (zero or more).
+     */
+    public void tick(int n) {
+        this.changeCount++;
+        if (this.ring == null) {
+            double factor = Math.pow(this.decay, n);
+            for (int i = 0; i < this.counts.length; i++) {
+                this.counts[i] *= factor;
+            }
+            this.total *= factor;
+            return;
+        }
+        if (n >= this.ring.length) {
+            // the whole window expires
+            for (int s = 0; s < this.ring.length; s++) {
+                Arrays.fill(this.ring[s], 0L);
+            }
+            Arrays.fill(this.counts, 0.0);
+            this.total = 0.0;
+            this.current = (int) ((this.current + (long) n)
+                    % this.ring.length);
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            tick();
+        }
+    }
+
+    /**
+     * Tests this histogram for equality with an arbitrary object.
+     *
+     * @param obj  the object (<code>null</code> permitted).
+     *
+     * @return A boolean.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof WindowedHistogram)) {
+            return false;
+        }
+        WindowedHistogram that = (WindowedHistogram) obj;
+        return this.minimum == that.minimum && this.maximum == that.maximum
+                && this.decay == that.decay && this.current == that.current
+                && this.total == that.total
+                && Arrays.equals(this.counts, that.counts)
+                && Arrays.deepEquals(this.ring, that.ring);
+    }
+
+    /**
+     * Returns a hash code for this histogram.
+     *
+     * @return A hash code.
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.counts);
+    }
+
+    /**
+     * Returns an independent copy of this histogram.
+     *
+     * @return A clone.
+     *
+     * @throws CloneNotSupportedException not thrown by this class.
+     */
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+        WindowedHistogram clone = (WindowedHistogram) super.clone();
+        clone.counts = this.counts.clone();
+        if (this.ring != null) {
+            clone.ring = new long[this.ring.length][];
+            for (int s = 0; s < this.ring.length; s++) {
+                clone.ring[s] = this.ring[s].clone();
+            }
+        }
+        return clone;
+    }
+
+}
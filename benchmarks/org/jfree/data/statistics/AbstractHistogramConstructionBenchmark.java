@@ -0,0 +1,147 @@
+package org.jfree.data.statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.primitives.Doubles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of building a histogram series from
+ * <code>double[]</code>, <code>Iterable&lt;Double&gt;</code> and
+ * <code>Iterator&lt;Double&gt;</code> inputs, against the boxed
+ * <code>Iterable</code> loop of the original <code>HistogramDataset</code>
+ * (kept in <code>HistogramDatast.java</code>, which declares the same class
+ * name and so cannot be compiled next to the current one; its loop is
+ * copied into {@link #legacyIterable()}).  The input sizes are declared by
+ * the subclasses, which set the heap for them:
+ * {@link HistogramConstructionBenchmark} runs up to 1e7 values with the
+ * default heap, {@link LargeHistogramConstructionBenchmark} runs 1e8 values
+ * with a heap of several gigabytes for the boxed inputs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class AbstractHistogramConstructionBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int bins;
+
+    private double[] values;
+
+    private List<Double> boxed;
+
+    /**
+     * Returns the number of values to bin.
+     *
+     * @return The size.
+     */
+    protected abstract int getSize();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42L);
+        int size = getSize();
+        this.values = new double[size];
+        for (int i = 0; i < size; i++) {
+            this.values[i] = random.nextDouble() * 100.0;
+        }
+        this.boxed = new ArrayList<Double>(Doubles.asList(this.values));
+    }
+
+    @Benchmark
+    public HistogramDataset doubleArray() {
+        HistogramDataset dataset = new HistogramDataset();
+        dataset.addSeries("S", this.values, this.bins, 0.0, 100.0);
+        return dataset;
+    }
+
+    @Benchmark
+    public HistogramDataset doubleArrayAutoRange() {
+        HistogramDataset dataset = new HistogramDataset();
+        dataset.addSeries("S", this.values, this.bins);
+        return dataset;
+    }
+
+    @Benchmark
+    public HistogramDataset iterable() {
+        HistogramDataset dataset = new HistogramDataset();
+        dataset.addSeries("S", this.boxed, this.bins, 0.0, 100.0);
+        return dataset;
+    }
+
+    @Benchmark
+    public HistogramDataset iterator() {
+        HistogramDataset dataset = new HistogramDataset();
+        dataset.addSeries("S", this.boxed.iterator(), this.bins, 0.0, 100.0);
+        return dataset;
+    }
+
+    @Benchmark
+    public List<HistogramBin> legacyIterable() {
+        return legacyBins(this.boxed, this.bins, 0.0, 100.0);
+    }
+
+    /**
+     * The binning loop of the original
+     * <code>HistogramDataset.addSeries(Comparable, Iterable, int, double,
+     * double)</code>.
+     */
+    static List<HistogramBin> legacyBins(Iterable<Double> values, int bins,
+            double minimum, double maximum) {
+        double binWidth = (maximum - minimum) / bins;
+        double lower = minimum;
+        double upper;
+        List<HistogramBin> binList = new ArrayList<HistogramBin>(bins);
+        for (int i = 0; i < bins; i++) {
+            HistogramBin bin;
+            if (i == bins - 1) {
+                bin = new HistogramBin(lower, maximum);
+            }
+            else {
+                upper = minimum + (i + 1) * binWidth;
+                bin = new HistogramBin(lower, upper);
+                lower = upper;
+            }
+            binList.add(bin);
+        }
+        for (Double value : values) {
+            if (value == null) {
+                continue;
+            }
+            int binIndex = bins - 1;
+            if (value < maximum) {
+                double fraction = (value.doubleValue() - minimum)
+                        / (maximum - minimum);
+                if (fraction < 0.0) {
+                    fraction = 0.0;
+                }
+                binIndex = (int) (fraction * bins);
+                if (binIndex >= bins) {
+                    binIndex = bins - 1;
+                }
+            }
+            HistogramBin bin = (HistogramBin) binList.get(binIndex);
+            bin.incrementCount();
+        }
+        return binList;
+    }
+
+}
@@ -0,0 +1,83 @@
+package org.jfree.data.statistics;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the single-threaded binning kernels: the boxed
+ * {@link HistogramDataset#getBinIndex(Double, double, double, int)} loop the
+ * dataset used before, the scalar primitive loop, and the Vector API kernel.
+ * This class lives in the <code>org.jfree.data.statistics</code> package to
+ * reach the package-private kernels; compile it together with the library
+ * sources and the JMH jars, with
+ * <code>--add-modules jdk.incubator.vector</code> for the vector case.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class BinningKernelBenchmark {
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"10", "100", "10000"})
+    public int bins;
+
+    private double[] values;
+
+    private long[] counts;
+
+    private HistogramBinning.Kernel vectorKernel;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Random random = new Random(42L);
+        this.values = new double[this.size];
+        for (int i = 0; i < this.size; i++) {
+            this.values[i] = random.nextDouble() * 100.0;
+        }
+        this.counts = new long[this.bins];
+        this.vectorKernel = new VectorBinningKernel();
+    }
+
+    @Benchmark
+    public long[] boxedGetBinIndex() {
+        long[] c = this.counts;
+        for (int i = 0; i < this.values.length; i++) {
+            c[HistogramDataset.getBinIndex(Double.valueOf(this.values[i]),
+                    0.0, 100.0, this.bins)]++;
+        }
+        return c;
+    }
+
+    @Benchmark
+    public long[] scalarKernel() {
+        HistogramBinning.countScalar(this.values, 0, this.values.length, 0.0,
+                100.0, this.counts);
+        return this.counts;
+    }
+
+    @Benchmark
+    public long[] vectorKernel() {
+        this.vectorKernel.count(this.values, 0, this.values.length, 0.0,
+                100.0, this.counts);
+        return this.counts;
+    }
+
+}
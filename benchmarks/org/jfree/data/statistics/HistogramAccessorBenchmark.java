@@ -0,0 +1,173 @@
+package org.jfree.data.statistics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.primitives.Doubles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures a renderer-style pass over every item of a histogram series
+ * through the boxed (<code>getY</code>, <code>getStartX</code>) and
+ * primitive (<code>getYValue</code>, <code>getStartXValue</code>)
+ * accessors, against the accessors of the original dataset, which kept
+ * each series in a <code>HashMap</code> and looked up its bin list, total
+ * and bin width by name on every call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistogramAccessorBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int bins;
+
+    @Param({"FREQUENCY", "RELATIVE_FREQUENCY"})
+    public String type;
+
+    private HistogramDataset dataset;
+
+    private HistogramType histogramType;
+
+    private List<Map<String, Object>> legacyList;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42L);
+        double[] values = new double[100000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble() * 100.0;
+        }
+        this.histogramType = "FREQUENCY".equals(this.type)
+                ? HistogramType.FREQUENCY : HistogramType.RELATIVE_FREQUENCY;
+        this.dataset = new HistogramDataset();
+        this.dataset.setType(this.histogramType);
+        this.dataset.addSeries("S", values, this.bins, 0.0, 100.0);
+        // the series map built by the original addSeries()
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("key", "S");
+        map.put("bins", AbstractHistogramConstructionBenchmark.legacyBins(
+                Doubles.asList(values), this.bins, 0.0, 100.0));
+        map.put("values.length", Integer.valueOf(values.length));
+        map.put("bin width", Double.valueOf(100.0 / this.bins));
+        this.legacyList = new ArrayList<Map<String, Object>>();
+        this.legacyList.add(map);
+    }
+
+    @Benchmark
+    public void getY(Blackhole bh) {
+        int n = this.dataset.getItemCount(0);
+        for (int i = 0; i < n; i++) {
+            bh.consume(this.dataset.getY(0, i));
+        }
+    }
+
+    @Benchmark
+    public void getYValue(Blackhole bh) {
+        int n = this.dataset.getItemCount(0);
+        for (int i = 0; i < n; i++) {
+            bh.consume(this.dataset.getYValue(0, i));
+        }
+    }
+
+    @Benchmark
+    public void getStartX(Blackhole bh) {
+        int n = this.dataset.getItemCount(0);
+        for (int i = 0; i < n; i++) {
+            bh.consume(this.dataset.getStartX(0, i));
+        }
+    }
+
+    @Benchmark
+    public void getStartXValue(Blackhole bh) {
+        int n = this.dataset.getItemCount(0);
+        for (int i = 0; i < n; i++) {
+            bh.consume(this.dataset.getStartXValue(0, i));
+        }
+    }
+
+    /**
+     * The original <code>getY</code>: three map lookups, a bin lookup and a
+     * new <code>Double</code> per call.
+     */
+    @Benchmark
+    public void legacyGetY(Blackhole bh) {
+        int n = legacyGetBins(0).size();
+        for (int i = 0; i < n; i++) {
+            bh.consume(legacyGetY(0, i));
+        }
+    }
+
+    /**
+     * The original <code>getStartX</code>: a map lookup, a bin lookup and a
+     * new <code>Double</code> per call.
+     */
+    @Benchmark
+    public void legacyGetStartX(Blackhole bh) {
+        int n = legacyGetBins(0).size();
+        for (int i = 0; i < n; i++) {
+            bh.consume(legacyGetStartX(0, i));
+        }
+    }
+
+    private List<?> legacyGetBins(int series) {
+        Map<String, Object> map = this.legacyList.get(series);
+        return (List<?>) map.get("bins");
+    }
+
+    private int legacyGetTotal(int series) {
+        Map<String, Object> map = this.legacyList.get(series);
+        return ((Integer) map.get("values.length")).intValue();
+    }
+
+    private double legacyGetBinWidth(int series) {
+        Map<String, Object> map = this.legacyList.get(series);
+        return ((Double) map.get("bin width")).doubleValue();
+    }
+
+    private Number legacyGetY(int series, int item) {
+        List<?> bins = legacyGetBins(series);
+        HistogramBin bin = (HistogramBin) bins.get(item);
+        double total = legacyGetTotal(series);
+        double binWidth = legacyGetBinWidth(series);
+        if (this.histogramType == HistogramType.FREQUENCY) {
+            return new Double(bin.getCount());
+        }
+        else if (this.histogramType == HistogramType.RELATIVE_FREQUENCY) {
+            return new Double(bin.getCount() / total);
+        }
+        else if (this.histogramType == HistogramType.SCALE_AREA_TO_1) {
+            return new Double(bin.getCount() / (binWidth * total));
+        }
+        else {
+            throw new IllegalStateException();
+        }
+    }
+
+    private Number legacyGetStartX(int series, int item) {
+        List<?> bins = legacyGetBins(series);
+        HistogramBin bin = (HistogramBin) bins.get(item);
+        return new Double(bin.getStartBoundary());
+    }
+
+}
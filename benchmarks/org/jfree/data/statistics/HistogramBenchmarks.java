@@ -0,0 +1,36 @@
+package org.jfree.data.statistics;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the histogram benchmarks with the GC profiler, which adds the
+ * allocation rate (<code>gc.alloc.rate.norm</code>, bytes per operation)
+ * to the results.  Any JMH command line options, such as
+ * <code>-p size=1000,100000</code> or <code>-rf json</code>, are passed
+ * through; the default selection is every histogram benchmark in this
+ * package.  {@link BinningKernelBenchmark} is not part of it: it needs the
+ * incubating Vector API module and is run on its own, with
+ * <code>--add-modules jdk.incubator.vector</code>.
+ */
+public class HistogramBenchmarks {
+
+    public static void main(String[] args) throws RunnerException,
+            CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(commandLine);
+        if (commandLine.getIncludes().isEmpty()) {
+            builder.include(
+                    "org\\.jfree\\.data\\.statistics\\..*Histogram.*Benchmark");
+        }
+        Options options = builder.addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,20 @@
+package org.jfree.data.statistics;
+
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Runs {@link AbstractHistogramConstructionBenchmark} for inputs of up to
+ * 1e7 values, which fit in the default heap.
+ */
+public class HistogramConstructionBenchmark
+        extends AbstractHistogramConstructionBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    @Override
+    protected int getSize() {
+        return this.size;
+    }
+
+}
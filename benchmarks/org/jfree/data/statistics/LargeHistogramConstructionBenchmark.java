@@ -0,0 +1,22 @@
+package org.jfree.data.statistics;
+
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Runs {@link AbstractHistogramConstructionBenchmark} for 1e8 values, in a
+ * fork with a fixed heap large enough for the boxed inputs (about 3 GB).
+ */
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class LargeHistogramConstructionBenchmark
+        extends AbstractHistogramConstructionBenchmark {
+
+    @Param({"100000000"})
+    public int size;
+
+    @Override
+    protected int getSize() {
+        return this.size;
+    }
+
+}
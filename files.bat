@@ -6,3 +6,16 @@ copy HistogramDataset.java c:\source_code\jfreechart-1.0.19\source\org\jfree\dat
 copy WaferMapDataset.java c:\source_code\jfreechart-1.0.19\source\org\jfree\data\general
 copy WaferMapPlot.java c:\source_code\jfreechart-1.0.19\source\org\jfree\chart\plot
 copy WaferMapRenderer.java c:\source_code\jfreechart-1.0.19\source\org\jfree\chart\renderer
+copy WaferMapChangeEvent.java c:\source_code\jfreechart-1.0.19\source\org\jfree\data\general
+copy IncrementalPlot.java c:\source_code\jfreechart-1.0.19\source\org\jfree\chart\plot
+copy WaferMapPlayback.java c:\source_code\jfreechart-1.0.19\source\org\jfree\data\general
+copy WaferMapComparison.java c:\source_code\jfreechart-1.0.19\source\org\jfree\data\general
+copy ColorMapPaintScale.java c:\source_code\jfreechart-1.0.19\source\org\jfree\chart\renderer
+copy ColorMapRegistry.java c:\source_code\jfreechart-1.0.19\source\org\jfree\chart\renderer
+copy QuantileSketch.java c:\source_code\jfreechart-1.0.19\source\org\jfree\data\statistics
+copy HistogramBinning.java c:\source_code\jfreechart-1.0.19\source\org\jfree\data\statistics
+copy HistogramBinRule.java c:\source_code\jfreechart-1.0.19\source\org\jfree\data\statistics
+copy LogLinearHistogram.java c:\source_code\jfreechart-1.0.19\source\org\jfree\data\statistics
+copy WindowedHistogram.java c:\source_code\jfreechart-1.0.19\source\org\jfree\data\statistics
+copy MultiResolutionHistogram.java c:\source_code\jfreechart-1.0.19\source\org\jfree\data\statistics
+copy CumulativeHistogramDataset.java c:\source_code\jfreechart-1.0.19\source\org\jfree\data\statistics
@@ -0,0 +1 @@
+copy VectorBinningKernel.java c:\source_code\jfreechart-1.0.19\source\org\jfree\data\statistics